@@ -0,0 +1,279 @@
+package atomics;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * An atomic long for variables updated by many threads at once. A plain CAS loop wastes most of the CPU time on
+ * failed attempts when dozens of threads update the same variable, so this one keeps a moving average of the recent
+ * CAS failure rate and picks the way to update by it:
+ * <ul>
+ *   <li>{@link Mode#RETRY}: retry a failed CAS at once, nothing is wasted while the variable is rarely contended;</li>
+ *   <li>{@link Mode#BACKOFF}: wait with {@link Thread#onSpinWait()} after a failed CAS, twice as long after every
+ *   failure, so fewer threads fight for the cache line at the same time;</li>
+ *   <li>{@link Mode#COMBINING}: additions are published to a slot and one thread at a time (the combiner) applies all
+ *   the published ones with a single atomic add and hands every thread its own result. Other updates keep backing off,
+ *   since an arbitrary function can't be combined.</li>
+ * </ul>
+ * The failure rate is updated without synchronization, so some samples may be lost, which only makes it a bit less
+ * precise. It's written only when it changes, so an uncontended variable doesn't pay for tracking it.
+ */
+public class ContendedAtomicLong {
+
+  public enum Mode {
+    RETRY, BACKOFF, COMBINING
+  }
+
+  private static final int NCPU = Runtime.getRuntime().availableProcessors();
+  // the failure rate is kept in 1/1024 units
+  private static final int SCALE = 1 << 10;
+  // every new sample moves the average by 1/8 of the difference
+  private static final int SMOOTHING_SHIFT = 3;
+  private static final int MAX_BACKOFF_SPINS = 1 << 10;
+  private static final int SLOTS = Integer.highestOneBit(Math.min(Math.max(4 * NCPU, 16), 256) - 1) << 1;
+
+  private static final int EMPTY = 0;
+  private static final int CLAIMED = 1;
+  private static final int PENDING = 2;
+  private static final int DONE = 3;
+
+  private final PaddedAtomicLong value;
+  private final PaddedAtomicInteger failureRate = new PaddedAtomicInteger();
+  private final int backoffThreshold;
+  private final int combiningThreshold;
+  private final Slot[] slots = new Slot[SLOTS];
+  private final AtomicBoolean combining = new AtomicBoolean();
+  private final LongAdder attempts = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder combinedUpdates = new LongAdder();
+  private final LongAdder combiningPasses = new LongAdder();
+
+  public ContendedAtomicLong() {
+    this(0);
+  }
+
+  public ContendedAtomicLong(long initialValue) {
+    this(initialValue, 0.05, 0.5);
+  }
+
+  /**
+   * @param backoffThreshold the failure rate from which failed attempts are retried after a backoff
+   * @param combiningThreshold the failure rate from which additions are combined
+   */
+  public ContendedAtomicLong(long initialValue, double backoffThreshold, double combiningThreshold) {
+    if (backoffThreshold < 0 || backoffThreshold > combiningThreshold) {
+      throw new IllegalArgumentException("Thresholds should be 0 <= backoff <= combining but were "
+          + backoffThreshold + " and " + combiningThreshold);
+    }
+    this.value = new PaddedAtomicLong(initialValue);
+    this.backoffThreshold = (int) (backoffThreshold * SCALE);
+    this.combiningThreshold = (int) (combiningThreshold * SCALE);
+    for (int i = 0; i < SLOTS; i++) {
+      slots[i] = new Slot();
+    }
+  }
+
+  public long get() {
+    return value.get();
+  }
+
+  public void set(long newValue) {
+    value.set(newValue);
+  }
+
+  public long updateAndGet(LongUnaryOperator update) {
+    return update(update, true);
+  }
+
+  public long getAndUpdate(LongUnaryOperator update) {
+    return update(update, false);
+  }
+
+  public long addAndGet(long delta) {
+    if (mode() == Mode.COMBINING) {
+      Slot slot = slots[(int) mix(Thread.currentThread().getId()) & (SLOTS - 1)];
+      if (slot.state.compareAndSet(EMPTY, CLAIMED)) {
+        return combine(slot, delta);
+      }
+      // another thread has the slot, it's faster to fight for the variable than to wait for the slot
+    }
+    return update(current -> current + delta, true);
+  }
+
+  public long getAndAdd(long delta) {
+    return addAndGet(delta) - delta;
+  }
+
+  public long incrementAndGet() {
+    return addAndGet(1);
+  }
+
+  public long getAndIncrement() {
+    return getAndAdd(1);
+  }
+
+  public long decrementAndGet() {
+    return addAndGet(-1);
+  }
+
+  public Mode mode() {
+    int rate = failureRate.get();
+    if (rate < backoffThreshold) {
+      return Mode.RETRY;
+    }
+    return rate < combiningThreshold ? Mode.BACKOFF : Mode.COMBINING;
+  }
+
+  /**
+   * The recent share of failed attempts, from 0 to 1. While additions are combined, the share of the combined ones that
+   * would have collided with each other is used instead.
+   */
+  public double getFailureRate() {
+    return (double) failureRate.get() / SCALE;
+  }
+
+  /**
+   * The number of CAS attempts since the creation, both successful and failed.
+   */
+  public long getAttempts() {
+    return attempts.sum();
+  }
+
+  public long getFailures() {
+    return failures.sum();
+  }
+
+  /**
+   * The number of additions applied by a combiner.
+   */
+  public long getCombinedUpdates() {
+    return combinedUpdates.sum();
+  }
+
+  /**
+   * The number of times a combiner applied a batch of additions.
+   */
+  public long getCombiningPasses() {
+    return combiningPasses.sum();
+  }
+
+  @Override
+  public String toString() {
+    return Long.toString(get());
+  }
+
+  private long update(LongUnaryOperator update, boolean returnNew) {
+    boolean backoff = mode() != Mode.RETRY;
+    int failed = 0;
+    long current = value.get();
+    while (true) {
+      long next = update.applyAsLong(current);
+      if (value.compareAndSet(current, next)) {
+        attempts.add(failed + 1);
+        if (failed > 0) {
+          failures.add(failed);
+        }
+        recordSample(failed * SCALE / (failed + 1));
+        return returnNew ? next : current;
+      }
+      failed++;
+      if (backoff) {
+        backOff(failed);
+      }
+      current = value.get();
+    }
+  }
+
+  private long combine(Slot slot, long delta) {
+    slot.delta = delta;
+    slot.state.set(PENDING);
+    int waited = 0;
+    while (slot.state.get() != DONE) {
+      if (!combining.get() && combining.compareAndSet(false, true)) {
+        try {
+          applyPending();
+        } finally {
+          combining.set(false);
+        }
+      } else if (NCPU > 1 && ++waited < MAX_BACKOFF_SPINS) {
+        Thread.onSpinWait();
+      } else {
+        // the combiner may need this core to finish
+        Thread.yield();
+      }
+    }
+    long result = slot.result;
+    slot.state.set(EMPTY);
+    return result;
+  }
+
+  /**
+   * Applies all the pending additions with one atomic add. Each of them gets the value it would have got if the
+   * additions were applied one by one in the order of the slots.
+   */
+  private void applyPending() {
+    long total = 0;
+    int batch = 0;
+    for (Slot slot : slots) {
+      if (slot.state.get() == PENDING) {
+        slot.batched = true;
+        total += slot.delta;
+        batch++;
+      }
+    }
+    if (batch == 0) {
+      return;
+    }
+    long running = value.getAndAdd(total);
+    for (Slot slot : slots) {
+      if (slot.batched) {
+        slot.batched = false;
+        running += slot.delta;
+        slot.result = running;
+        slot.state.set(DONE);
+      }
+    }
+    combinedUpdates.add(batch);
+    combiningPasses.increment();
+    // additions batched together would have collided if each of them had run its own CAS
+    recordSample((batch - 1) * SCALE / batch);
+  }
+
+  private void recordSample(int sample) {
+    int rate = failureRate.get();
+    int next = rate + ((sample - rate) >> SMOOTHING_SHIFT);
+    if (next != rate) {
+      failureRate.lazySet(next);
+    }
+  }
+
+  private static void backOff(int failed) {
+    int spins = Math.min(1 << Math.min(failed, 30), MAX_BACKOFF_SPINS);
+    if (NCPU == 1) {
+      // spinning can't help while the thread that won runs on the same core
+      Thread.yield();
+      return;
+    }
+    for (int i = 0; i < spins; i++) {
+      Thread.onSpinWait();
+    }
+  }
+
+  private static long mix(long id) {
+    long h = id * 0x9E3779B97F4A7C15L;
+    return h ^ (h >>> 32);
+  }
+
+  /**
+   * A published addition. Only the thread that claimed the slot writes the delta, and only the combiner writes the
+   * result; both are published by the volatile write of the state.
+   */
+  private static final class Slot {
+    private final PaddedAtomicInteger state = new PaddedAtomicInteger(EMPTY);
+    private long delta;
+    private long result;
+    // accessed only by the combiner
+    private boolean batched;
+  }
+}
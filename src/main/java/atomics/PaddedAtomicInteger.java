@@ -0,0 +1,100 @@
+package atomics;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * An {@link java.util.concurrent.atomic.AtomicInteger} that has a cache line of its own. The padding is laid out the
+ * same way as in {@link PaddedAtomicLong}.
+ */
+public class PaddedAtomicInteger extends PaddedAtomicIntegerRhsPadding {
+
+  private static final VarHandle VALUE;
+
+  static {
+    try {
+      VALUE = MethodHandles.lookup().findVarHandle(PaddedAtomicIntegerValue.class, "value", int.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  public PaddedAtomicInteger() {
+  }
+
+  public PaddedAtomicInteger(int initialValue) {
+    value = initialValue;
+  }
+
+  public int get() {
+    return value;
+  }
+
+  public void set(int newValue) {
+    value = newValue;
+  }
+
+  public void lazySet(int newValue) {
+    VALUE.setRelease(this, newValue);
+  }
+
+  public boolean compareAndSet(int expectedValue, int newValue) {
+    return VALUE.compareAndSet(this, expectedValue, newValue);
+  }
+
+  public int getAndSet(int newValue) {
+    return (int) VALUE.getAndSet(this, newValue);
+  }
+
+  public int getAndAdd(int delta) {
+    return (int) VALUE.getAndAdd(this, delta);
+  }
+
+  public int addAndGet(int delta) {
+    return (int) VALUE.getAndAdd(this, delta) + delta;
+  }
+
+  public int getAndIncrement() {
+    return getAndAdd(1);
+  }
+
+  public int incrementAndGet() {
+    return addAndGet(1);
+  }
+
+  public int decrementAndGet() {
+    return addAndGet(-1);
+  }
+
+  public int updateAndGet(IntUnaryOperator update) {
+    int current = value;
+    while (true) {
+      int next = update.applyAsInt(current);
+      int witness = (int) VALUE.compareAndExchange(this, current, next);
+      if (witness == current) {
+        return next;
+      }
+      current = witness;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return Integer.toString(get());
+  }
+}
+
+abstract class PaddedAtomicIntegerLhsPadding {
+  // fills the gap after the object header, the JVM would put a small value there otherwise
+  int p00;
+  long p01, p02, p03, p04, p05, p06, p07, p08, p09, p10, p11, p12, p13, p14, p15;
+}
+
+abstract class PaddedAtomicIntegerValue extends PaddedAtomicIntegerLhsPadding {
+  volatile int value;
+}
+
+abstract class PaddedAtomicIntegerRhsPadding extends PaddedAtomicIntegerValue {
+  long p17, p18, p19, p20, p21, p22, p23, p24, p25, p26, p27, p28, p29, p30, p31, p32;
+}
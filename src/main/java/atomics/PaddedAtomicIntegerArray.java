@@ -0,0 +1,66 @@
+package atomics;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * An {@link java.util.concurrent.atomic.AtomicIntegerArray} whose elements don't share cache lines, laid out the same
+ * way as {@link PaddedAtomicLongArray}.
+ */
+public class PaddedAtomicIntegerArray {
+
+  // 32 ints are 128 bytes
+  private static final int STRIDE = 32;
+  private static final VarHandle ELEMENT = MethodHandles.arrayElementVarHandle(int[].class);
+
+  private final int length;
+  private final int[] elements;
+
+  public PaddedAtomicIntegerArray(int length) {
+    this.length = length;
+    this.elements = new int[(length + 1) * STRIDE];
+  }
+
+  public int length() {
+    return length;
+  }
+
+  public int get(int i) {
+    return (int) ELEMENT.getVolatile(elements, index(i));
+  }
+
+  public void set(int i, int newValue) {
+    ELEMENT.setVolatile(elements, index(i), newValue);
+  }
+
+  public void lazySet(int i, int newValue) {
+    ELEMENT.setRelease(elements, index(i), newValue);
+  }
+
+  public boolean compareAndSet(int i, int expectedValue, int newValue) {
+    return ELEMENT.compareAndSet(elements, index(i), expectedValue, newValue);
+  }
+
+  public int getAndSet(int i, int newValue) {
+    return (int) ELEMENT.getAndSet(elements, index(i), newValue);
+  }
+
+  public int getAndAdd(int i, int delta) {
+    return (int) ELEMENT.getAndAdd(elements, index(i), delta);
+  }
+
+  public int addAndGet(int i, int delta) {
+    return getAndAdd(i, delta) + delta;
+  }
+
+  public int incrementAndGet(int i) {
+    return addAndGet(i, 1);
+  }
+
+  private int index(int i) {
+    if (i < 0 || i >= length) {
+      throw new IndexOutOfBoundsException("Index " + i + " is out of bounds for length " + length);
+    }
+    return (i + 1) * STRIDE;
+  }
+}
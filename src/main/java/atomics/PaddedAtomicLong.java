@@ -0,0 +1,109 @@
+package atomics;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * An {@link java.util.concurrent.atomic.AtomicLong} that has a cache line of its own, so counters allocated next to
+ * each other don't slow each other down (false sharing). The value is padded by 128 bytes on each side, two cache
+ * lines, as the adjacent-line prefetcher pulls cache lines in pairs; it's the padding {@code @Contended} uses too, and
+ * the one of every padded class of the package. The padding fields are declared in the superclasses around the value:
+ * the JVM may reorder fields within a class but lays out the fields of a superclass first, so the padding can't be
+ * moved away from the value. Only a gap left by a superclass can be taken by a subclass field, that's why the left
+ * padding starts with an int filling the gap after the object header. {@code @Contended} would do the same but needs
+ * {@code -XX:-RestrictContended}.
+ */
+public class PaddedAtomicLong extends PaddedAtomicLongRhsPadding {
+
+  private static final VarHandle VALUE;
+
+  static {
+    try {
+      VALUE = MethodHandles.lookup().findVarHandle(PaddedAtomicLongValue.class, "value", long.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  public PaddedAtomicLong() {
+  }
+
+  public PaddedAtomicLong(long initialValue) {
+    value = initialValue;
+  }
+
+  public long get() {
+    return value;
+  }
+
+  public void set(long newValue) {
+    value = newValue;
+  }
+
+  /**
+   * Sets the value without a full fence: other threads see it eventually, in program order with the previous writes.
+   */
+  public void lazySet(long newValue) {
+    VALUE.setRelease(this, newValue);
+  }
+
+  public boolean compareAndSet(long expectedValue, long newValue) {
+    return VALUE.compareAndSet(this, expectedValue, newValue);
+  }
+
+  public long getAndSet(long newValue) {
+    return (long) VALUE.getAndSet(this, newValue);
+  }
+
+  public long getAndAdd(long delta) {
+    return (long) VALUE.getAndAdd(this, delta);
+  }
+
+  public long addAndGet(long delta) {
+    return (long) VALUE.getAndAdd(this, delta) + delta;
+  }
+
+  public long getAndIncrement() {
+    return getAndAdd(1);
+  }
+
+  public long incrementAndGet() {
+    return addAndGet(1);
+  }
+
+  public long decrementAndGet() {
+    return addAndGet(-1);
+  }
+
+  public long updateAndGet(LongUnaryOperator update) {
+    long current = value;
+    while (true) {
+      long next = update.applyAsLong(current);
+      long witness = (long) VALUE.compareAndExchange(this, current, next);
+      if (witness == current) {
+        return next;
+      }
+      current = witness;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return Long.toString(get());
+  }
+}
+
+abstract class PaddedAtomicLongLhsPadding {
+  // fills the gap after the object header, the JVM would put a small value there otherwise
+  int p00;
+  long p01, p02, p03, p04, p05, p06, p07, p08, p09, p10, p11, p12, p13, p14, p15;
+}
+
+abstract class PaddedAtomicLongValue extends PaddedAtomicLongLhsPadding {
+  volatile long value;
+}
+
+abstract class PaddedAtomicLongRhsPadding extends PaddedAtomicLongValue {
+  long p17, p18, p19, p20, p21, p22, p23, p24, p25, p26, p27, p28, p29, p30, p31, p32;
+}
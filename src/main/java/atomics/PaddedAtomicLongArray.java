@@ -0,0 +1,67 @@
+package atomics;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * An {@link java.util.concurrent.atomic.AtomicLongArray} whose elements don't share cache lines. Every element takes
+ * 128 bytes, the padding of {@link PaddedAtomicLong}, and the first slot is left empty to pad the elements from the
+ * array header.
+ */
+public class PaddedAtomicLongArray {
+
+  // 16 longs are 128 bytes
+  private static final int STRIDE = 16;
+  private static final VarHandle ELEMENT = MethodHandles.arrayElementVarHandle(long[].class);
+
+  private final int length;
+  private final long[] elements;
+
+  public PaddedAtomicLongArray(int length) {
+    this.length = length;
+    this.elements = new long[(length + 1) * STRIDE];
+  }
+
+  public int length() {
+    return length;
+  }
+
+  public long get(int i) {
+    return (long) ELEMENT.getVolatile(elements, index(i));
+  }
+
+  public void set(int i, long newValue) {
+    ELEMENT.setVolatile(elements, index(i), newValue);
+  }
+
+  public void lazySet(int i, long newValue) {
+    ELEMENT.setRelease(elements, index(i), newValue);
+  }
+
+  public boolean compareAndSet(int i, long expectedValue, long newValue) {
+    return ELEMENT.compareAndSet(elements, index(i), expectedValue, newValue);
+  }
+
+  public long getAndSet(int i, long newValue) {
+    return (long) ELEMENT.getAndSet(elements, index(i), newValue);
+  }
+
+  public long getAndAdd(int i, long delta) {
+    return (long) ELEMENT.getAndAdd(elements, index(i), delta);
+  }
+
+  public long addAndGet(int i, long delta) {
+    return getAndAdd(i, delta) + delta;
+  }
+
+  public long incrementAndGet(int i) {
+    return addAndGet(i, 1);
+  }
+
+  private int index(int i) {
+    if (i < 0 || i >= length) {
+      throw new IndexOutOfBoundsException("Index " + i + " is out of bounds for length " + length);
+    }
+    return (i + 1) * STRIDE;
+  }
+}
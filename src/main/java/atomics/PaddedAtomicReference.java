@@ -0,0 +1,85 @@
+package atomics;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.UnaryOperator;
+
+/**
+ * An {@link java.util.concurrent.atomic.AtomicReference} that has a cache line of its own. The padding is laid out the
+ * same way as in {@link PaddedAtomicLong}.
+ *
+ * @param <V> the type of the referenced object
+ */
+public class PaddedAtomicReference<V> extends PaddedAtomicReferenceRhsPadding {
+
+  private static final VarHandle VALUE;
+
+  static {
+    try {
+      VALUE = MethodHandles.lookup().findVarHandle(PaddedAtomicReferenceValue.class, "value", Object.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  public PaddedAtomicReference() {
+  }
+
+  public PaddedAtomicReference(V initialValue) {
+    value = initialValue;
+  }
+
+  @SuppressWarnings("unchecked")
+  public V get() {
+    return (V) value;
+  }
+
+  public void set(V newValue) {
+    value = newValue;
+  }
+
+  public void lazySet(V newValue) {
+    VALUE.setRelease(this, newValue);
+  }
+
+  public boolean compareAndSet(V expectedValue, V newValue) {
+    return VALUE.compareAndSet(this, expectedValue, newValue);
+  }
+
+  @SuppressWarnings("unchecked")
+  public V getAndSet(V newValue) {
+    return (V) VALUE.getAndSet(this, newValue);
+  }
+
+  @SuppressWarnings("unchecked")
+  public V updateAndGet(UnaryOperator<V> update) {
+    V current = (V) value;
+    while (true) {
+      V next = update.apply(current);
+      V witness = (V) VALUE.compareAndExchange(this, current, next);
+      if (witness == current) {
+        return next;
+      }
+      current = witness;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.valueOf(get());
+  }
+}
+
+abstract class PaddedAtomicReferenceLhsPadding {
+  // fills the gap after the object header, the JVM would put a small value there otherwise
+  int p00;
+  long p01, p02, p03, p04, p05, p06, p07, p08, p09, p10, p11, p12, p13, p14, p15;
+}
+
+abstract class PaddedAtomicReferenceValue extends PaddedAtomicReferenceLhsPadding {
+  volatile Object value;
+}
+
+abstract class PaddedAtomicReferenceRhsPadding extends PaddedAtomicReferenceValue {
+  long p17, p18, p19, p20, p21, p22, p23, p24, p25, p26, p27, p28, p29, p30, p31, p32;
+}
@@ -0,0 +1,58 @@
+package atomics;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * An {@link java.util.concurrent.atomic.AtomicReferenceArray} whose elements don't share cache lines, laid out the same
+ * way as {@link PaddedAtomicLongArray}. A stride of 32 references is 128 bytes with compressed references and twice as
+ * much without them.
+ *
+ * @param <E> the type of the elements
+ */
+public class PaddedAtomicReferenceArray<E> {
+
+  private static final int STRIDE = 32;
+  private static final VarHandle ELEMENT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+  private final int length;
+  private final Object[] elements;
+
+  public PaddedAtomicReferenceArray(int length) {
+    this.length = length;
+    this.elements = new Object[(length + 1) * STRIDE];
+  }
+
+  public int length() {
+    return length;
+  }
+
+  @SuppressWarnings("unchecked")
+  public E get(int i) {
+    return (E) ELEMENT.getVolatile(elements, index(i));
+  }
+
+  public void set(int i, E newValue) {
+    ELEMENT.setVolatile(elements, index(i), newValue);
+  }
+
+  public void lazySet(int i, E newValue) {
+    ELEMENT.setRelease(elements, index(i), newValue);
+  }
+
+  public boolean compareAndSet(int i, E expectedValue, E newValue) {
+    return ELEMENT.compareAndSet(elements, index(i), expectedValue, newValue);
+  }
+
+  @SuppressWarnings("unchecked")
+  public E getAndSet(int i, E newValue) {
+    return (E) ELEMENT.getAndSet(elements, index(i), newValue);
+  }
+
+  private int index(int i) {
+    if (i < 0 || i >= length) {
+      throw new IndexOutOfBoundsException("Index " + i + " is out of bounds for length " + length);
+    }
+    return (i + 1) * STRIDE;
+  }
+}
@@ -0,0 +1,202 @@
+package limits;
+
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bulkhead whose number of permits follows the measured latency. More concurrent calls than the protected resource
+ * can serve (e.g. CPU-bound work behind a lock) only wait in its queue, so the {@link LimitAlgorithm} lowers the limit
+ * when the latency grows and raises it while the latency stays low. Calls above the limit are rejected right away or,
+ * if a queue is configured, wait for a permit for a while.
+ * <p>
+ * A permit is taken with a CAS on the number of calls in flight, without locks. Completed calls update the limit one
+ * at a time, so the algorithm sees every call once. Queued callers don't keep their order: a new caller may take a
+ * freed permit before them.
+ */
+public class AdaptiveLimiter {
+
+  private final LimitAlgorithm algorithm;
+  private final int maxQueued;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger queued = new AtomicInteger();
+  private final Queue<Thread> waiters = new ConcurrentLinkedQueue<>();
+  private final LongAdder accepted = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  // serializes the algorithm and the write of its result, the limit is read without it
+  private final Lock updateLock = new ReentrantLock();
+  private volatile int limit;
+
+  /**
+   * A limiter rejecting the calls above the limit.
+   */
+  public AdaptiveLimiter(LimitAlgorithm algorithm, int initialLimit) {
+    this(algorithm, initialLimit, 0);
+  }
+
+  /**
+   * @param maxQueued the number of callers that may wait for a permit, the others are rejected
+   */
+  public AdaptiveLimiter(LimitAlgorithm algorithm, int initialLimit, int maxQueued) {
+    if (initialLimit < 1) {
+      throw new IllegalArgumentException("Limit should be positive but was " + initialLimit);
+    }
+    this.algorithm = algorithm;
+    this.limit = initialLimit;
+    this.maxQueued = maxQueued;
+  }
+
+  /**
+   * Takes a permit if the limit isn't reached.
+   */
+  public Optional<Permit> tryAcquire() {
+    Permit permit = tryIncrement();
+    if (permit == null) {
+      rejected.increment();
+    }
+    return Optional.ofNullable(permit);
+  }
+
+  /**
+   * Takes a permit, waiting for one up to the given time if there is room in the queue.
+   */
+  public Optional<Permit> tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+    Permit permit = tryIncrement();
+    if (permit != null) {
+      return Optional.of(permit);
+    }
+    if (queued.incrementAndGet() > maxQueued) {
+      queued.decrementAndGet();
+      rejected.increment();
+      return Optional.empty();
+    }
+    Thread current = Thread.currentThread();
+    // queued before the next attempt, so a permit released after the attempt wakes us up
+    waiters.add(current);
+    try {
+      long deadline = System.nanoTime() + unit.toNanos(timeout);
+      while ((permit = tryIncrement()) == null) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          rejected.increment();
+          return Optional.empty();
+        }
+        LockSupport.parkNanos(this, remaining);
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+      }
+      return Optional.of(permit);
+    } finally {
+      waiters.remove(current);
+      queued.decrementAndGet();
+    }
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  public int getQueued() {
+    return queued.get();
+  }
+
+  public long getAccepted() {
+    return accepted.sum();
+  }
+
+  public long getRejected() {
+    return rejected.sum();
+  }
+
+  public long getDropped() {
+    return dropped.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "limit=" + getLimit() + " inFlight=" + getInFlight() + " queued=" + getQueued() + " accepted="
+        + getAccepted() + " rejected=" + getRejected() + " dropped=" + getDropped();
+  }
+
+  private Permit tryIncrement() {
+    int current;
+    do {
+      current = inFlight.get();
+      if (current >= limit) {
+        return null;
+      }
+    } while (!inFlight.compareAndSet(current, current + 1));
+    accepted.increment();
+    return new Permit(current + 1);
+  }
+
+  private void onComplete(Permit permit, boolean wasDropped) {
+    long rtt = System.nanoTime() - permit.start;
+    inFlight.decrementAndGet();
+    if (wasDropped) {
+      dropped.increment();
+    }
+    // under the lock, so a concurrent completion doesn't overwrite the result of this one, e.g. an increase over a
+    // backoff, and a stateful algorithm isn't called twice for the same call
+    int next;
+    updateLock.lock();
+    try {
+      next = Math.max(1, algorithm.update(limit, rtt, permit.inFlight, wasDropped));
+      limit = next;
+    } finally {
+      updateLock.unlock();
+    }
+    // the limit may have grown by more than the freed permit
+    Iterator<Thread> queue = waiters.iterator();
+    for (int free = next - inFlight.get(); free > 0 && queue.hasNext(); free--) {
+      LockSupport.unpark(queue.next());
+    }
+  }
+
+  /**
+   * The right to make one call. It has to be released when the call is over, the limit is updated with its latency.
+   */
+  public final class Permit implements AutoCloseable {
+    private final long start = System.nanoTime();
+    private final int inFlight;
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    private Permit(int inFlight) {
+      this.inFlight = inFlight;
+    }
+
+    public void release() {
+      if (completed.compareAndSet(false, true)) {
+        onComplete(this, false);
+      }
+    }
+
+    /**
+     * Releases the permit of a call that has failed because of overload, e.g. timed out.
+     */
+    public void drop() {
+      if (completed.compareAndSet(false, true)) {
+        onComplete(this, true);
+      }
+    }
+
+    @Override
+    public void close() {
+      release();
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package limits;
+
+class AimdLimit implements LimitAlgorithm {
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final long thresholdNanos;
+  private final double backoffRatio;
+
+  AimdLimit(int minLimit, int maxLimit, long thresholdNanos, double backoffRatio) {
+    if (minLimit < 1 || maxLimit < minLimit) {
+      throw new IllegalArgumentException(
+          "Limits should satisfy 1 <= min <= max but were " + minLimit + ", " + maxLimit);
+    }
+    if (backoffRatio <= 0 || backoffRatio >= 1) {
+      throw new IllegalArgumentException("Backoff ratio should be in (0, 1) but was " + backoffRatio);
+    }
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.thresholdNanos = thresholdNanos;
+    this.backoffRatio = backoffRatio;
+  }
+
+  @Override
+  public int update(int limit, long rttNanos, int inFlight, boolean dropped) {
+    if (dropped || rttNanos > thresholdNanos) {
+      return Math.max(minLimit, (int) (limit * backoffRatio));
+    }
+    // a limit that isn't used says nothing about the service
+    if (inFlight * 2 >= limit) {
+      return Math.min(maxLimit, limit + 1);
+    }
+    return limit;
+  }
+}
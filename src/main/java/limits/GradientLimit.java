@@ -0,0 +1,51 @@
+package limits;
+
+class GradientLimit implements LimitAlgorithm {
+
+  // the latency may double before the limit starts to shrink
+  private static final double TOLERANCE = 2.0;
+  private static final double SMOOTHING = 0.2;
+  // the latency without load is measured again from time to time, as the service may have got slower for good
+  private static final int SAMPLES_PER_PROBE = 1000;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private double estimatedLimit;
+  private long noLoadRttNanos = Long.MAX_VALUE;
+  private int samples;
+
+  GradientLimit(int minLimit, int maxLimit) {
+    if (minLimit < 1 || maxLimit < minLimit) {
+      throw new IllegalArgumentException(
+          "Limits should satisfy 1 <= min <= max but were " + minLimit + ", " + maxLimit);
+    }
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.estimatedLimit = minLimit;
+  }
+
+  @Override
+  public synchronized int update(int limit, long rttNanos, int inFlight, boolean dropped) {
+    if (samples++ == 0) {
+      estimatedLimit = limit;
+    }
+    if (samples % SAMPLES_PER_PROBE == 0) {
+      noLoadRttNanos = rttNanos;
+    } else {
+      noLoadRttNanos = Math.min(noLoadRttNanos, rttNanos);
+    }
+    double next;
+    if (dropped) {
+      next = estimatedLimit / 2;
+    } else {
+      double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * noLoadRttNanos / Math.max(1, rttNanos)));
+      next = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+      // a limit that isn't used says nothing about the service
+      if (inFlight * 2 < estimatedLimit) {
+        next = Math.min(next, estimatedLimit);
+      }
+    }
+    estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit * (1 - SMOOTHING) + next * SMOOTHING));
+    return (int) estimatedLimit;
+  }
+}
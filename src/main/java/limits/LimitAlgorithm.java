@@ -0,0 +1,36 @@
+package limits;
+
+import java.time.Duration;
+
+/**
+ * Computes the concurrency limit of an {@link AdaptiveLimiter} from the measured latency. It's called after every
+ * completed call, once per call and by one thread at a time, so it may keep state between the calls.
+ */
+@FunctionalInterface
+public interface LimitAlgorithm {
+
+  /**
+   * @param limit    the current limit
+   * @param rttNanos the time the call has taken
+   * @param inFlight the number of calls in flight when the call started, including the call itself
+   * @param dropped  whether the call has failed because of overload, e.g. timed out
+   * @return the new limit
+   */
+  int update(int limit, long rttNanos, int inFlight, boolean dropped);
+
+  /**
+   * Additive increase, multiplicative decrease: the limit grows by one while calls are faster than the threshold and
+   * the limit is actually used, and is cut by the backoff ratio when a call is slower or dropped.
+   */
+  static LimitAlgorithm aimd(int minLimit, int maxLimit, Duration threshold, double backoffRatio) {
+    return new AimdLimit(minLimit, maxLimit, threshold.toNanos(), backoffRatio);
+  }
+
+  /**
+   * Compares the latency to the latency without load: the limit shrinks in proportion to the growth of the latency
+   * (by half at most), and otherwise grows by the square root of itself, the queue the service is allowed to build.
+   */
+  static LimitAlgorithm gradient(int minLimit, int maxLimit) {
+    return new GradientLimit(minLimit, maxLimit);
+  }
+}
@@ -0,0 +1,155 @@
+package load;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in nanoseconds with a fixed relative precision, HdrHistogram style: values are grouped into
+ * buckets by powers of two, and each bucket is split into the same number of linear sub-buckets. Recording is a couple
+ * of shifts and an atomic increment, so many threads can record at once, and the memory doesn't depend on the number
+ * of recorded values.
+ * <p>
+ * Values above the highest trackable one are recorded as the highest one.
+ */
+public class LatencyHistogram {
+
+  private static final long DEFAULT_HIGHEST = TimeUnit.MINUTES.toNanos(10);
+
+  private final long highestTrackableValue;
+  private final int subBucketBits;
+  private final int subBucketHalfCount;
+  private final AtomicLongArray counts;
+  private final AtomicLong totalCount = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+  private final AtomicLong max = new AtomicLong(0);
+
+  /**
+   * A histogram of values up to 10 minutes with 2 significant digits.
+   */
+  public LatencyHistogram() {
+    this(DEFAULT_HIGHEST, 2);
+  }
+
+  /**
+   * @param highestTrackableValue the highest value to track, in nanoseconds
+   * @param significantDigits     the number of significant decimal digits kept for every value, 1 to 5
+   */
+  public LatencyHistogram(long highestTrackableValue, int significantDigits) {
+    if (highestTrackableValue < 2) {
+      throw new IllegalArgumentException(
+          "Highest trackable value should be at least 2 but was " + highestTrackableValue);
+    }
+    if (significantDigits < 1 || significantDigits > 5) {
+      throw new IllegalArgumentException("Significant digits should be from 1 to 5 but was " + significantDigits);
+    }
+    this.highestTrackableValue = highestTrackableValue;
+    // enough sub-buckets to tell apart values differing in the last significant digit
+    long subBucketCount = 2 * (long) Math.pow(10, significantDigits);
+    this.subBucketBits = 64 - Long.numberOfLeadingZeros(subBucketCount - 1);
+    this.subBucketHalfCount = 1 << (subBucketBits - 1);
+    this.counts = new AtomicLongArray(index(highestTrackableValue) + 1);
+  }
+
+  public void record(long value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("Latency can't be negative but was " + value);
+    }
+    long clamped = Math.min(value, highestTrackableValue);
+    counts.incrementAndGet(index(clamped));
+    totalCount.incrementAndGet();
+    sum.addAndGet(clamped);
+    min.accumulateAndGet(clamped, Math::min);
+    max.accumulateAndGet(clamped, Math::max);
+  }
+
+  public long count() {
+    return totalCount.get();
+  }
+
+  public long min() {
+    return count() == 0 ? 0 : min.get();
+  }
+
+  public long max() {
+    return max.get();
+  }
+
+  public double mean() {
+    long count = count();
+    return count == 0 ? 0 : (double) sum.get() / count;
+  }
+
+  /**
+   * Returns the value that the given percentage of the recorded values don't exceed, rounded up to the precision of the
+   * histogram.
+   *
+   * @param percentile from 0 to 100
+   */
+  public long valueAtPercentile(double percentile) {
+    long count = count();
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+    long seen = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(highestEquivalentValue(i), max());
+      }
+    }
+    return max();
+  }
+
+  /**
+   * Adds all the values recorded by the other histogram, which must have the same precision and range.
+   */
+  public void add(LatencyHistogram other) {
+    if (other.counts.length() != counts.length() || other.subBucketBits != subBucketBits) {
+      throw new IllegalArgumentException("Histograms have different layouts");
+    }
+    for (int i = 0; i < counts.length(); i++) {
+      long count = other.counts.get(i);
+      if (count != 0) {
+        counts.addAndGet(i, count);
+      }
+    }
+    totalCount.addAndGet(other.count());
+    sum.addAndGet(other.sum.get());
+    if (other.count() != 0) {
+      min.accumulateAndGet(other.min(), Math::min);
+      max.accumulateAndGet(other.max(), Math::max);
+    }
+  }
+
+  public void reset() {
+    for (int i = 0; i < counts.length(); i++) {
+      counts.set(i, 0);
+    }
+    totalCount.set(0);
+    sum.set(0);
+    min.set(Long.MAX_VALUE);
+    max.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("count=%d p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus", count(),
+        valueAtPercentile(50) / 1000.0, valueAtPercentile(90) / 1000.0, valueAtPercentile(99) / 1000.0,
+        valueAtPercentile(99.9) / 1000.0, max() / 1000.0);
+  }
+
+  private int index(long value) {
+    // bucket 0 holds values below 2 * half count one by one, bucket b holds them in steps of 2^b
+    int bucket = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - subBucketBits);
+    return (bucket * subBucketHalfCount) + (int) (value >>> bucket);
+  }
+
+  private long highestEquivalentValue(int index) {
+    int bucket = Math.max(0, index / subBucketHalfCount - 1);
+    long subBucket = index - (long) bucket * subBucketHalfCount;
+    return ((subBucket + 1) << bucket) - 1;
+  }
+}
@@ -0,0 +1,219 @@
+package load;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a service with a fixed arrival rate, no matter how fast it responds. Request {@code i} is due at
+ * {@code start + i / rate}; the workers, playing the service's thread pool, take the requests in order, wait for the
+ * due time and run the service. A request that finds every worker busy waits, and its latency is measured from the
+ * due time rather than from the moment a worker gets to it. That corrects for coordinated omission: a closed-loop test
+ * would simply send fewer requests while the service is stalled and never see the queueing delay. A service shedding
+ * load throws {@link RejectedExecutionException}; rejected requests are counted apart from the served ones.
+ * <p>
+ * {@link #sweep(double[], Duration)} runs the same service at growing rates to find the knee, the rate at which the
+ * tail latency takes off.
+ */
+public class OpenLoopHarness {
+
+  private static final double DEFAULT_KNEE_FACTOR = 10;
+
+  private final Runnable service;
+  private final int workers;
+
+  /**
+   * @param service the request handler, called by several workers at once
+   * @param workers the number of requests served at once
+   */
+  public OpenLoopHarness(Runnable service, int workers) {
+    if (workers < 1) {
+      throw new IllegalArgumentException("There should be at least one worker but was " + workers);
+    }
+    this.service = service;
+    this.workers = workers;
+  }
+
+  /**
+   * Issues requests at the given rate for the given time. Requests that are due but not served after as much time again
+   * are given up and recorded with the latency they have reached by then, so an overloaded run still finishes.
+   */
+  public Result run(double requestsPerSecond, Duration duration) throws InterruptedException {
+    if (requestsPerSecond <= 0) {
+      throw new IllegalArgumentException("Rate should be positive but was " + requestsPerSecond);
+    }
+    double periodNanos = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+    long requests = (long) (duration.toNanos() / periodNanos);
+    LatencyHistogram histogram = new LatencyHistogram();
+    AtomicLong next = new AtomicLong();
+    AtomicLong unfinished = new AtomicLong();
+    AtomicLong rejected = new AtomicLong();
+    CountDownLatch done = new CountDownLatch(workers);
+    long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10);
+    long giveUp = start + 2 * duration.toNanos();
+    for (int i = 0; i < workers; i++) {
+      Thread worker = new Thread(() -> {
+        try {
+          long request;
+          while ((request = next.getAndIncrement()) < requests) {
+            long due = start + (long) (request * periodNanos);
+            long now = awaitDue(due);
+            if (now > giveUp) {
+              histogram.record(now - due);
+              unfinished.incrementAndGet();
+              continue;
+            }
+            try {
+              service.run();
+            } catch (RejectedExecutionException e) {
+              rejected.incrementAndGet();
+              continue;
+            }
+            histogram.record(System.nanoTime() - due);
+          }
+        } finally {
+          done.countDown();
+        }
+      }, "open-loop-worker-" + i);
+      worker.setDaemon(true);
+      worker.start();
+    }
+    done.await();
+    long elapsed = System.nanoTime() - start;
+    return new Result(requestsPerSecond, requests, unfinished.get(), rejected.get(), elapsed, histogram);
+  }
+
+  /**
+   * Runs the service at every rate, from the lowest one.
+   */
+  public Sweep sweep(double[] requestsPerSecond, Duration durationPerRate) throws InterruptedException {
+    List<Result> results = new ArrayList<>();
+    for (double rate : requestsPerSecond) {
+      results.add(run(rate, durationPerRate));
+    }
+    return new Sweep(results);
+  }
+
+  private static long awaitDue(long due) {
+    long now;
+    while ((now = System.nanoTime()) < due) {
+      long remaining = due - now;
+      // parking is too coarse for the last microseconds
+      if (remaining > TimeUnit.MICROSECONDS.toNanos(100)) {
+        LockSupport.parkNanos(remaining - TimeUnit.MICROSECONDS.toNanos(50));
+      } else {
+        Thread.onSpinWait();
+      }
+    }
+    return now;
+  }
+
+  public static final class Result {
+    private final double requestsPerSecond;
+    private final long requests;
+    private final long unfinished;
+    private final long rejected;
+    private final long elapsedNanos;
+    private final LatencyHistogram latency;
+
+    Result(double requestsPerSecond, long requests, long unfinished, long rejected, long elapsedNanos,
+        LatencyHistogram latency) {
+      this.requestsPerSecond = requestsPerSecond;
+      this.requests = requests;
+      this.unfinished = unfinished;
+      this.rejected = rejected;
+      this.elapsedNanos = elapsedNanos;
+      this.latency = latency;
+    }
+
+    public double requestsPerSecond() {
+      return requestsPerSecond;
+    }
+
+    public long requests() {
+      return requests;
+    }
+
+    /**
+     * The number of requests given up because the service fell too far behind.
+     */
+    public long unfinished() {
+      return unfinished;
+    }
+
+    /**
+     * The number of requests the service has rejected.
+     */
+    public long rejected() {
+      return rejected;
+    }
+
+    /**
+     * The rate of served requests.
+     */
+    public double achievedRequestsPerSecond() {
+      return (requests - unfinished - rejected) * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * Latencies from the due time of every served request, in nanoseconds. Requests given up are recorded too, with the
+     * latency they had reached, a lower bound of the one they would have had, so an overload still shows in the tail.
+     */
+    public LatencyHistogram latency() {
+      return latency;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("rate=%.0f/s achieved=%.0f/s unfinished=%d rejected=%d %s", requestsPerSecond,
+          achievedRequestsPerSecond(), unfinished, rejected, latency);
+    }
+  }
+
+  public static final class Sweep {
+    private final List<Result> results;
+
+    Sweep(List<Result> results) {
+      this.results = Collections.unmodifiableList(results);
+    }
+
+    public List<Result> results() {
+      return results;
+    }
+
+    /**
+     * The first rate at which the 99th percentile grows ten times compared to the lowest rate, or requests are given
+     * up.
+     */
+    public Optional<Result> knee() {
+      return knee(99, DEFAULT_KNEE_FACTOR);
+    }
+
+    public Optional<Result> knee(double percentile, double factor) {
+      if (results.isEmpty()) {
+        return Optional.empty();
+      }
+      long baseline = Math.max(1, results.get(0).latency().valueAtPercentile(percentile));
+      return results.stream()
+          .filter(result -> result.unfinished() > 0
+              || result.latency().valueAtPercentile(percentile) > factor * baseline)
+          .findFirst();
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sweep = new StringBuilder();
+      results.forEach(result -> sweep.append(result).append('\n'));
+      sweep.append("knee: ").append(knee().map(result -> String.format("%.0f/s", result.requestsPerSecond()))
+          .orElse("not reached"));
+      return sweep.toString();
+    }
+  }
+}
@@ -0,0 +1,445 @@
+package load;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Turns a lincheck test into a load test: the {@code @Operation} methods of the class are called in a weighted random
+ * mix from several threads on one shared instance, and the throughput and latency of every operation are measured.
+ * {@link #scale(int, Duration)} repeats the run with more and more threads to show how the data structure scales.
+ * <p>
+ * Operations are found by the name of the lincheck annotation rather than by its class, so lincheck doesn't have to be
+ * on the class path of the runner. Parameters of the types int, long and boolean (and their wrappers) get random
+ * values on every call. Numbers are drawn from the {@code from:to} range in the {@code conf} of the parameter's
+ * {@code @Param}, given on the parameter or by name on the class, or from -10 to 10 as lincheck does by default; the
+ * generator class of the {@code @Param} isn't used. An exception thrown by an operation is counted as an error of the
+ * operation and the run goes on.
+ */
+public class OperationLoadRunner {
+
+  private static final String OPERATION_ANNOTATION = "org.jetbrains.kotlinx.lincheck.annotations.Operation";
+  private static final String PARAM_ANNOTATION = "org.jetbrains.kotlinx.lincheck.annotations.Param";
+  // the container of repeated @Param annotations on a class
+  private static final String PARAMS_ANNOTATION = PARAM_ANNOTATION + "$Params";
+  private static final String DEFAULT_RANGE = "-10:10";
+  private static final MethodHandle NEXT_INT;
+  private static final MethodHandle NEXT_LONG;
+  private static final MethodHandle NEXT_BOOLEAN;
+
+  static {
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    try {
+      NEXT_INT = lookup.findStatic(OperationLoadRunner.class, "nextInt",
+          MethodType.methodType(int.class, int.class, int.class));
+      NEXT_LONG = lookup.findStatic(OperationLoadRunner.class, "nextLong",
+          MethodType.methodType(long.class, long.class, long.class));
+      NEXT_BOOLEAN = lookup.findStatic(OperationLoadRunner.class, "nextBoolean", MethodType.methodType(boolean.class));
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private final Constructor<?> constructor;
+  private final Map<String, MethodHandle> operations = new LinkedHashMap<>();
+  private final Map<String, Integer> weights = new LinkedHashMap<>();
+
+  /**
+   * @param operationsClass a class with a constructor without parameters and methods annotated with
+   *                        {@code @Operation}
+   */
+  public OperationLoadRunner(Class<?> operationsClass) {
+    try {
+      constructor = operationsClass.getDeclaredConstructor();
+      constructor.setAccessible(true);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalArgumentException(operationsClass.getName() + " has no constructor without parameters", e);
+    }
+    Map<String, String> namedParams = namedParams(operationsClass);
+    Method[] methods = operationsClass.getDeclaredMethods();
+    // the order of declared methods isn't specified, a stable one makes reports comparable
+    Arrays.sort(methods, Comparator.comparing(Method::getName));
+    for (Method method : methods) {
+      if (!isOperation(method)) {
+        continue;
+      }
+      method.setAccessible(true);
+      try {
+        MethodHandle operation = MethodHandles.lookup().unreflect(method);
+        for (Parameter parameter : method.getParameters()) {
+          // the generator takes the place of the first parameter after the instance
+          operation = MethodHandles.collectArguments(operation, 1, generator(method, parameter, namedParams));
+        }
+        operations.put(method.getName(), operation);
+      } catch (IllegalAccessException e) {
+        throw new IllegalArgumentException("Operation " + method.getName() + " isn't accessible", e);
+      }
+      weights.put(method.getName(), 1);
+    }
+    if (operations.isEmpty()) {
+      throw new IllegalArgumentException(operationsClass.getName() + " has no @Operation methods");
+    }
+  }
+
+  /**
+   * Sets how often the operation is called relative to the others. Every operation has the weight 1 by default, 0
+   * leaves it out of the mix.
+   */
+  public OperationLoadRunner weight(String operation, int weight) {
+    if (!operations.containsKey(operation)) {
+      throw new IllegalArgumentException("There is no operation " + operation);
+    }
+    if (weight < 0) {
+      throw new IllegalArgumentException("Weight should not be negative but was " + weight);
+    }
+    weights.put(operation, weight);
+    return this;
+  }
+
+  public List<String> operations() {
+    return Collections.unmodifiableList(new ArrayList<>(operations.keySet()));
+  }
+
+  /**
+   * Calls the operations on a new instance of the class from the given number of threads for the given time.
+   */
+  public Result run(int threads, Duration duration) throws InterruptedException {
+    if (threads < 1) {
+      throw new IllegalArgumentException("There should be at least one thread but was " + threads);
+    }
+    List<String> names = new ArrayList<>();
+    List<MethodHandle> calls = new ArrayList<>();
+    List<Integer> cumulativeWeights = new ArrayList<>();
+    int totalWeight = 0;
+    Object instance = newInstance();
+    for (Map.Entry<String, MethodHandle> operation : operations.entrySet()) {
+      int weight = weights.get(operation.getKey());
+      if (weight == 0) {
+        continue;
+      }
+      totalWeight += weight;
+      names.add(operation.getKey());
+      calls.add(operation.getValue().bindTo(instance).asType(MethodType.methodType(Object.class)));
+      cumulativeWeights.add(totalWeight);
+    }
+    if (names.isEmpty()) {
+      throw new IllegalStateException("Every operation has the weight 0");
+    }
+    int mixWeight = totalWeight;
+    LatencyHistogram[] latencies = new LatencyHistogram[names.size()];
+    LongAdder[] errors = new LongAdder[names.size()];
+    for (int i = 0; i < names.size(); i++) {
+      latencies[i] = new LatencyHistogram();
+      errors[i] = new LongAdder();
+    }
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> workers = new ArrayList<>();
+    long[] end = new long[1];
+    for (int t = 0; t < threads; t++) {
+      Thread worker = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long now = System.nanoTime();
+        while (now < end[0]) {
+          int operation = pick(cumulativeWeights, random.nextInt(mixWeight));
+          try {
+            Object ignored = (Object) calls.get(operation).invokeExact();
+          } catch (Throwable e) {
+            errors[operation].increment();
+          }
+          long finished = System.nanoTime();
+          latencies[operation].record(finished - now);
+          now = finished;
+        }
+      }, "operation-load-" + t);
+      worker.setDaemon(true);
+      workers.add(worker);
+      worker.start();
+    }
+    long begin = System.nanoTime();
+    end[0] = begin + duration.toNanos();
+    // the latch publishes the end time to the workers
+    start.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    long elapsed = System.nanoTime() - begin;
+    Map<String, OperationResult> results = new LinkedHashMap<>();
+    for (int i = 0; i < names.size(); i++) {
+      results.put(names.get(i), new OperationResult(names.get(i), latencies[i], errors[i].sum(), elapsed));
+    }
+    return new Result(threads, elapsed, results);
+  }
+
+  /**
+   * Runs the mix with 1, 2, 4 and so on threads up to the given number.
+   */
+  public Scaling scale(int maxThreads, Duration durationPerRun) throws InterruptedException {
+    if (maxThreads < 1) {
+      throw new IllegalArgumentException("maxThreads should be at least one but was " + maxThreads);
+    }
+    List<Result> results = new ArrayList<>();
+    for (int threads = 1; threads < maxThreads; threads *= 2) {
+      results.add(run(threads, durationPerRun));
+    }
+    results.add(run(maxThreads, durationPerRun));
+    return new Scaling(results);
+  }
+
+  private Object newInstance() {
+    try {
+      return constructor.newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Can't create " + constructor.getDeclaringClass().getName(), e);
+    }
+  }
+
+  private static boolean isOperation(Method method) {
+    return Arrays.stream(method.getAnnotations())
+        .anyMatch(annotation -> annotation.annotationType().getName().equals(OPERATION_ANNOTATION));
+  }
+
+  private static Map<String, String> namedParams(Class<?> operationsClass) {
+    Map<String, String> confs = new LinkedHashMap<>();
+    for (Annotation annotation : operationsClass.getAnnotations()) {
+      String type = annotation.annotationType().getName();
+      if (type.equals(PARAM_ANNOTATION)) {
+        confs.put(attribute(annotation, "name"), attribute(annotation, "conf"));
+      } else if (type.equals(PARAMS_ANNOTATION)) {
+        for (Annotation param : (Annotation[]) attributeValue(annotation, "value")) {
+          confs.put(attribute(param, "name"), attribute(param, "conf"));
+        }
+      }
+    }
+    return confs;
+  }
+
+  private static MethodHandle generator(Method method, Parameter parameter, Map<String, String> namedParams) {
+    String conf = DEFAULT_RANGE;
+    for (Annotation annotation : parameter.getAnnotations()) {
+      if (!annotation.annotationType().getName().equals(PARAM_ANNOTATION)) {
+        continue;
+      }
+      String name = attribute(annotation, "name");
+      if (!attribute(annotation, "conf").isEmpty()) {
+        conf = attribute(annotation, "conf");
+      } else if (!name.isEmpty()) {
+        if (!namedParams.containsKey(name)) {
+          throw new IllegalArgumentException("Operation " + method.getName() + " refers to @Param " + name
+              + ", which isn't declared on the class");
+        }
+        conf = namedParams.get(name).isEmpty() ? DEFAULT_RANGE : namedParams.get(name);
+      }
+    }
+    Class<?> type = parameter.getType();
+    MethodHandle generator;
+    if (type == int.class || type == Integer.class) {
+      long[] range = range(method, conf, Integer.MIN_VALUE, Integer.MAX_VALUE);
+      generator = MethodHandles.insertArguments(NEXT_INT, 0, (int) range[0], (int) range[1]);
+    } else if (type == long.class || type == Long.class) {
+      // the upper bound is inclusive, so it must leave room for one more
+      long[] range = range(method, conf, Long.MIN_VALUE, Long.MAX_VALUE - 1);
+      generator = MethodHandles.insertArguments(NEXT_LONG, 0, range[0], range[1]);
+    } else if (type == boolean.class || type == Boolean.class) {
+      generator = NEXT_BOOLEAN;
+    } else {
+      throw new IllegalArgumentException("Operation " + method.getName() + " has a parameter of type "
+          + type.getName() + ", only int, long and boolean are supported");
+    }
+    return generator.asType(MethodType.methodType(type));
+  }
+
+  private static long[] range(Method method, String conf, long min, long max) {
+    String[] bounds = conf.split(":");
+    try {
+      if (bounds.length == 2) {
+        long from = Long.parseLong(bounds[0].trim());
+        long to = Long.parseLong(bounds[1].trim());
+        if (min <= from && from <= to && to <= max) {
+          return new long[] {from, to};
+        }
+      }
+    } catch (NumberFormatException e) {
+      // reported below
+    }
+    throw new IllegalArgumentException("Operation " + method.getName() + " has a parameter with the conf \"" + conf
+        + "\", which isn't a from:to range");
+  }
+
+  private static String attribute(Annotation annotation, String name) {
+    return (String) attributeValue(annotation, name);
+  }
+
+  private static Object attributeValue(Annotation annotation, String name) {
+    try {
+      Method attribute = annotation.annotationType().getMethod(name);
+      attribute.setAccessible(true);
+      return attribute.invoke(annotation);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalArgumentException("Can't read " + name + " of " + annotation, e);
+    }
+  }
+
+  private static int nextInt(int from, int to) {
+    return (int) ThreadLocalRandom.current().nextLong(from, (long) to + 1);
+  }
+
+  private static long nextLong(long from, long to) {
+    return ThreadLocalRandom.current().nextLong(from, to + 1);
+  }
+
+  private static boolean nextBoolean() {
+    return ThreadLocalRandom.current().nextBoolean();
+  }
+
+  private static int pick(List<Integer> cumulativeWeights, int value) {
+    int operation = 0;
+    while (cumulativeWeights.get(operation) <= value) {
+      operation++;
+    }
+    return operation;
+  }
+
+  public static final class OperationResult {
+    private final String name;
+    private final LatencyHistogram latency;
+    private final long errors;
+    private final long elapsedNanos;
+
+    OperationResult(String name, LatencyHistogram latency, long errors, long elapsedNanos) {
+      this.name = name;
+      this.latency = latency;
+      this.errors = errors;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    public String name() {
+      return name;
+    }
+
+    /**
+     * The number of calls, including the ones that have thrown an exception.
+     */
+    public long calls() {
+      return latency.count();
+    }
+
+    public long errors() {
+      return errors;
+    }
+
+    public double callsPerSecond() {
+      return calls() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * Latencies of the calls in nanoseconds.
+     */
+    public LatencyHistogram latency() {
+      return latency;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%-16s %,14.0f/s errors=%d p50=%dns p99=%dns p99.9=%dns max=%dns", name, callsPerSecond(),
+          errors, latency.valueAtPercentile(50), latency.valueAtPercentile(99), latency.valueAtPercentile(99.9),
+          latency.max());
+    }
+  }
+
+  public static final class Result {
+    private final int threads;
+    private final long elapsedNanos;
+    private final Map<String, OperationResult> operations;
+
+    Result(int threads, long elapsedNanos, Map<String, OperationResult> operations) {
+      this.threads = threads;
+      this.elapsedNanos = elapsedNanos;
+      this.operations = Collections.unmodifiableMap(operations);
+    }
+
+    public int threads() {
+      return threads;
+    }
+
+    /**
+     * The results of the operations in the mix, by name.
+     */
+    public Map<String, OperationResult> operations() {
+      return operations;
+    }
+
+    public OperationResult operation(String name) {
+      OperationResult result = operations.get(name);
+      if (result == null) {
+        throw new IllegalArgumentException("Operation " + name + " wasn't in the mix");
+      }
+      return result;
+    }
+
+    /**
+     * The number of calls of all the operations per second.
+     */
+    public double callsPerSecond() {
+      long calls = operations.values().stream().mapToLong(OperationResult::calls).sum();
+      return calls * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder result = new StringBuilder(String.format("threads=%d total %,.0f/s", threads, callsPerSecond()));
+      operations.values().forEach(operation -> result.append("\n  ").append(operation));
+      return result.toString();
+    }
+  }
+
+  public static final class Scaling {
+    private final List<Result> results;
+
+    Scaling(List<Result> results) {
+      this.results = Collections.unmodifiableList(results);
+    }
+
+    public List<Result> results() {
+      return results;
+    }
+
+    /**
+     * The throughput with the given result's threads compared to the throughput of one thread multiplied by their
+     * number: 1 means linear scaling, 1/threads means no gain from the extra threads at all.
+     */
+    public double efficiency(Result result) {
+      return result.callsPerSecond() / (results.get(0).callsPerSecond() * result.threads() / results.get(0).threads());
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder scaling = new StringBuilder();
+      results.forEach(result -> scaling.append(result).append('\n'));
+      scaling.append(String.format("%8s %16s %11s%n", "threads", "calls/s", "efficiency"));
+      results.forEach(result -> scaling.append(String.format("%8d %,16.0f %10.0f%%%n", result.threads(),
+          result.callsPerSecond(), 100 * efficiency(result))));
+      return scaling.toString();
+    }
+  }
+}
@@ -0,0 +1,219 @@
+package locks;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A lock biased towards the first thread that takes it, in the spirit of the biased locking removed from HotSpot in
+ * JDK 15. While the bias holds, the owner takes the lock with a volatile store of {@code ownerInside} followed by a
+ * volatile read of {@code revoked} and releases it with a release store, no CAS or other atomic read-modify-write.
+ * Reentrant acquisitions are plain counter updates.
+ * <p>
+ * The first acquisition by another thread revokes the bias: it sets {@code revoked} and waits until the owner is out
+ * of its critical section, polling with a growing pause as the owner doesn't know anybody waits. The two sides form a
+ * Dekker pair, so either the owner sees the revocation and goes the slow way, or the revoker sees the owner inside and
+ * waits. From then on the lock is a plain {@link ReentrantLock} for every thread, the owner included; the bias is
+ * never restored. The lock is reentrant in both modes and its conditions behave like the ones of
+ * {@link ReentrantLock}.
+ */
+public class BiasedLock implements Lock {
+
+  private static final VarHandle BIAS_OWNER;
+  private static final VarHandle OWNER_INSIDE;
+
+  static {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      BIAS_OWNER = lookup.findVarHandle(BiasedLock.class, "biasOwner", Thread.class);
+      OWNER_INSIDE = lookup.findVarHandle(BiasedLock.class, "ownerInside", boolean.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  // spinning makes sense only if the owner is running on another core
+  private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 1 << 7 : 0;
+  private static final int YIELDS = 1 << 3;
+  private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final ReentrantLock fallback = new ReentrantLock();
+  private volatile Thread biasOwner;
+  // written only by the bias owner
+  private volatile boolean ownerInside;
+  private volatile boolean revoked;
+  // touched only by the bias owner
+  private int biasedHolds;
+
+  @Override
+  public void lock() {
+    if (tryBiased()) {
+      return;
+    }
+    try {
+      revoke(Long.MAX_VALUE, false);
+    } catch (InterruptedException e) {
+      throw new IllegalStateException("Uninterruptible revocation is interrupted", e);
+    }
+    fallback.lock();
+  }
+
+  @Override
+  public void lockInterruptibly() throws InterruptedException {
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+    if (tryBiased()) {
+      return;
+    }
+    revoke(Long.MAX_VALUE, true);
+    fallback.lockInterruptibly();
+  }
+
+  @Override
+  public boolean tryLock() {
+    if (tryBiased()) {
+      return true;
+    }
+    revoked = true;
+    // the owner is leaving the biased critical section, the lock isn't free yet
+    if (ownerInside && biasOwner != Thread.currentThread()) {
+      return false;
+    }
+    return fallback.tryLock();
+  }
+
+  @Override
+  public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+    if (tryBiased()) {
+      return true;
+    }
+    long deadline = System.nanoTime() + unit.toNanos(time);
+    if (!revoke(unit.toNanos(time), true)) {
+      return false;
+    }
+    return fallback.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void unlock() {
+    if (biasOwner == Thread.currentThread() && biasedHolds > 0) {
+      if (--biasedHolds == 0) {
+        // no StoreLoad fence needed: nothing is read after leaving
+        OWNER_INSIDE.setRelease(this, false);
+      }
+      return;
+    }
+    fallback.unlock();
+  }
+
+  public boolean isHeldByCurrentThread() {
+    return getHoldCount() > 0;
+  }
+
+  public int getHoldCount() {
+    if (biasOwner == Thread.currentThread() && biasedHolds > 0) {
+      return biasedHolds;
+    }
+    return fallback.getHoldCount();
+  }
+
+  /**
+   * Whether another thread has taken the lock, so the bias is gone for good.
+   */
+  public boolean isRevoked() {
+    return revoked;
+  }
+
+  @Override
+  public Condition newCondition() {
+    return new QueuedCondition(new QueuedCondition.Owner() {
+      @Override
+      public boolean isHeldByCurrentThread() {
+        return BiasedLock.this.isHeldByCurrentThread();
+      }
+
+      @Override
+      public int releaseAll() {
+        int holds = getHoldCount();
+        for (int i = 0; i < holds; i++) {
+          unlock();
+        }
+        return holds;
+      }
+
+      @Override
+      public void reacquire(int holds) {
+        // the bias may have been revoked in the meantime, so the mode is chosen by lock()
+        for (int i = 0; i < holds; i++) {
+          lock();
+        }
+      }
+    });
+  }
+
+  private boolean tryBiased() {
+    Thread current = Thread.currentThread();
+    Thread owner = biasOwner;
+    if (owner == current && biasedHolds > 0) {
+      biasedHolds++;
+      return true;
+    }
+    if (revoked) {
+      return false;
+    }
+    if (owner == null && BIAS_OWNER.compareAndSet(this, null, current)) {
+      // the only CAS of the bias owner, done once
+      owner = current;
+    }
+    if (owner != current) {
+      return false;
+    }
+    ownerInside = true;
+    if (!revoked) {
+      biasedHolds = 1;
+      return true;
+    }
+    // a revoker is waiting for us to leave
+    OWNER_INSIDE.setRelease(this, false);
+    return false;
+  }
+
+  /**
+   * Revokes the bias and waits until the bias owner leaves its critical section.
+   *
+   * @return false if the owner hasn't left in time
+   */
+  private boolean revoke(long nanosTimeout, boolean interruptible) throws InterruptedException {
+    revoked = true;
+    if (biasOwner == Thread.currentThread()) {
+      // the owner revoking itself isn't inside, otherwise it would have reentered
+      return true;
+    }
+    long deadline = System.nanoTime() + nanosTimeout;
+    long park = MIN_PARK_NANOS;
+    for (int attempt = 0; ownerInside; attempt++) {
+      if (interruptible && Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      if (nanosTimeout != Long.MAX_VALUE && System.nanoTime() - deadline >= 0) {
+        return false;
+      }
+      if (attempt < SPINS) {
+        Thread.onSpinWait();
+      } else if (attempt < SPINS + YIELDS) {
+        Thread.yield();
+      } else {
+        // the owner doesn't know anybody is waiting, so it can't wake us up
+        LockSupport.parkNanos(this, park);
+        park = Math.min(MAX_PARK_NANOS, park * 2);
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,299 @@
+package locks;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * A lock that keeps ownership within a cluster of cores for a while, so the protected data doesn't travel across the
+ * interconnect on every handoff. Every cluster has a local lock, and one global lock is held by the cluster of the
+ * current owner. The owner passes the global lock to the next thread of its cluster together with the local lock, if
+ * there is such a thread and fewer than {@code maxLocalHandoffs} handoffs in a row have happened; otherwise it releases
+ * the global lock so other clusters can get it in FIFO order. The global lock is a {@link Semaphore}, so it can be
+ * released by a thread other than the one that acquired it.
+ * <p>
+ * Java can't tell the core a thread is running on, so the cluster of a thread is given by a mapper, e.g. from the CPU
+ * the thread is pinned to. The lock is reentrant and its conditions behave like the ones of {@link ReentrantLock}.
+ */
+public class CohortLock implements Lock {
+
+  private static final int DEFAULT_MAX_LOCAL_HANDOFFS = 64;
+
+  private final Cluster[] clusters;
+  private final ToIntFunction<Thread> clusterOf;
+  private final int maxLocalHandoffs;
+  // fair, otherwise a thread of the releasing cluster could take it again before the waiting clusters
+  private final Semaphore global = new Semaphore(1, true);
+  private volatile Thread owner;
+  private Cluster ownerCluster;
+  private int holds;
+  private volatile long localHandoffs;
+  private volatile long globalHandoffs;
+
+  /**
+   * Spreads the threads over the clusters by their ids.
+   */
+  public CohortLock(int clusters) {
+    this(clusters, thread -> (int) (thread.getId() % clusters), DEFAULT_MAX_LOCAL_HANDOFFS);
+  }
+
+  /**
+   * @param clusters         the number of clusters
+   * @param clusterOf        the cluster of a thread, from 0 to clusters - 1
+   * @param maxLocalHandoffs the number of handoffs in a row within a cluster before the lock is offered to the others
+   */
+  public CohortLock(int clusters, ToIntFunction<Thread> clusterOf, int maxLocalHandoffs) {
+    if (clusters < 1) {
+      throw new IllegalArgumentException("There should be at least one cluster but was " + clusters);
+    }
+    if (maxLocalHandoffs < 0) {
+      throw new IllegalArgumentException("Max local handoffs can't be negative but was " + maxLocalHandoffs);
+    }
+    this.clusters = new Cluster[clusters];
+    for (int i = 0; i < clusters; i++) {
+      this.clusters[i] = new Cluster();
+    }
+    this.clusterOf = clusterOf;
+    this.maxLocalHandoffs = maxLocalHandoffs;
+  }
+
+  /**
+   * Groups the CPUs by {@code cpusPerCluster} consecutive ids, e.g. the cores sharing a last level cache.
+   *
+   * @param cpuOf the CPU the thread is pinned to
+   */
+  public static CohortLock forCpuGroups(int cpus, int cpusPerCluster, ToIntFunction<Thread> cpuOf,
+      int maxLocalHandoffs) {
+    int clusters = (cpus + cpusPerCluster - 1) / cpusPerCluster;
+    return new CohortLock(clusters, thread -> cpuOf.applyAsInt(thread) / cpusPerCluster, maxLocalHandoffs);
+  }
+
+  @Override
+  public void lock() {
+    if (reenter()) {
+      return;
+    }
+    Cluster cluster = cluster();
+    cluster.waiting.incrementAndGet();
+    cluster.local.lock();
+    cluster.waiting.decrementAndGet();
+    if (!cluster.ownsGlobal) {
+      global.acquireUninterruptibly();
+      onGlobalAcquired(cluster);
+    }
+    onAcquired(cluster);
+  }
+
+  @Override
+  public void lockInterruptibly() throws InterruptedException {
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+    if (reenter()) {
+      return;
+    }
+    Cluster cluster = cluster();
+    cluster.waiting.incrementAndGet();
+    try {
+      cluster.local.lockInterruptibly();
+    } catch (InterruptedException e) {
+      giveUp(cluster);
+      throw e;
+    }
+    cluster.waiting.decrementAndGet();
+    if (!cluster.ownsGlobal) {
+      try {
+        global.acquire();
+      } catch (InterruptedException e) {
+        cluster.local.unlock();
+        throw e;
+      }
+      onGlobalAcquired(cluster);
+    }
+    onAcquired(cluster);
+  }
+
+  @Override
+  public boolean tryLock() {
+    if (reenter()) {
+      return true;
+    }
+    Cluster cluster = cluster();
+    if (!cluster.local.tryLock()) {
+      return false;
+    }
+    if (!cluster.ownsGlobal) {
+      if (!global.tryAcquire()) {
+        cluster.local.unlock();
+        return false;
+      }
+      onGlobalAcquired(cluster);
+    }
+    onAcquired(cluster);
+    return true;
+  }
+
+  @Override
+  public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+    if (reenter()) {
+      return true;
+    }
+    long deadline = System.nanoTime() + unit.toNanos(time);
+    Cluster cluster = cluster();
+    cluster.waiting.incrementAndGet();
+    boolean locked;
+    try {
+      locked = cluster.local.tryLock(time, unit);
+    } catch (InterruptedException e) {
+      giveUp(cluster);
+      throw e;
+    }
+    if (!locked) {
+      giveUp(cluster);
+      return false;
+    }
+    cluster.waiting.decrementAndGet();
+    if (!cluster.ownsGlobal) {
+      boolean acquired;
+      try {
+        acquired = global.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        cluster.local.unlock();
+        throw e;
+      }
+      if (!acquired) {
+        cluster.local.unlock();
+        return false;
+      }
+      onGlobalAcquired(cluster);
+    }
+    onAcquired(cluster);
+    return true;
+  }
+
+  @Override
+  public void unlock() {
+    if (owner != Thread.currentThread()) {
+      throw new IllegalMonitorStateException("Current thread doesn't hold the lock");
+    }
+    if (--holds > 0) {
+      return;
+    }
+    Cluster cluster = ownerCluster;
+    ownerCluster = null;
+    owner = null;
+    release(cluster);
+  }
+
+  public boolean isHeldByCurrentThread() {
+    return owner == Thread.currentThread();
+  }
+
+  /**
+   * The number of times the lock has been passed to a thread of the same cluster.
+   */
+  public long getLocalHandoffs() {
+    return localHandoffs;
+  }
+
+  /**
+   * The number of times the global lock has been acquired by a cluster.
+   */
+  public long getGlobalHandoffs() {
+    return globalHandoffs;
+  }
+
+  @Override
+  public Condition newCondition() {
+    return new QueuedCondition(new QueuedCondition.Owner() {
+      @Override
+      public boolean isHeldByCurrentThread() {
+        return CohortLock.this.isHeldByCurrentThread();
+      }
+
+      @Override
+      public int releaseAll() {
+        int released = holds;
+        holds = 1;
+        unlock();
+        return released;
+      }
+
+      @Override
+      public void reacquire(int released) {
+        lock();
+        holds = released;
+      }
+    });
+  }
+
+  private Cluster cluster() {
+    return clusters[Math.floorMod(clusterOf.applyAsInt(Thread.currentThread()), clusters.length)];
+  }
+
+  private boolean reenter() {
+    if (owner == Thread.currentThread()) {
+      holds++;
+      return true;
+    }
+    return false;
+  }
+
+  private void onGlobalAcquired(Cluster cluster) {
+    cluster.ownsGlobal = true;
+    cluster.handoffs = 0;
+    globalHandoffs++;
+  }
+
+  private void onAcquired(Cluster cluster) {
+    owner = Thread.currentThread();
+    ownerCluster = cluster;
+    holds = 1;
+  }
+
+  /**
+   * Called with the local lock held.
+   */
+  private void release(Cluster cluster) {
+    while (true) {
+      boolean kept = cluster.ownsGlobal && cluster.waiting.get() > 0 && cluster.handoffs < maxLocalHandoffs;
+      if (kept) {
+        // the global lock goes to the next local owner
+        cluster.handoffs++;
+        localHandoffs++;
+      } else if (cluster.ownsGlobal) {
+        cluster.ownsGlobal = false;
+        global.release();
+      }
+      cluster.local.unlock();
+      // the waiter it was kept for may have given up while we held the local lock, and couldn't release it then
+      if (!kept || cluster.waiting.get() > 0 || !cluster.local.tryLock()) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * A thread that stops waiting for the local lock may be the one the owner has kept the global lock for. It takes the
+   * local lock if it's free and releases it the usual way, so the global lock isn't left to a cluster nobody waits in.
+   * If the local lock is still held, its owner sees the waiter gone after unlocking and does the same.
+   */
+  private void giveUp(Cluster cluster) {
+    cluster.waiting.decrementAndGet();
+    if (cluster.local.tryLock()) {
+      release(cluster);
+    }
+  }
+
+  private static class Cluster {
+    private final ReentrantLock local = new ReentrantLock();
+    private final AtomicInteger waiting = new AtomicInteger();
+    // both are guarded by the local lock
+    private boolean ownsGlobal;
+    private int handoffs;
+  }
+}
@@ -0,0 +1,294 @@
+package locks;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.FileLockInterruptionException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A mutex shared by all the processes of a host. The state of the lock is a single word in a small memory-mapped file:
+ * the owner's PID in the low 32 bits and the owner's lease deadline (epoch seconds) in the high 32 bits. An uncontended
+ * acquisition is one CAS on the mapped memory. Contended processes queue on a {@link FileChannel#lock()} of the file and
+ * retry the CAS, taking the lock over if the owner process is dead or its lease has expired.
+ * <p>
+ * Threads of the same JVM are serialized by a local {@link ReentrantLock} first, so only one thread per process
+ * competes for the shared word. Use a single instance per file per JVM.
+ */
+public class CrossProcessLock implements Lock, Closeable {
+
+  private static final VarHandle WORD = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+  private static final int STATE_OFFSET = 0;
+  private static final int STATE_SIZE = Long.BYTES;
+  // waiters queue on a region that is not mapped to keep the file lock away from the lock state
+  private static final long QUEUE_POSITION = STATE_SIZE;
+  private static final long FREE = 0L;
+  private static final long MIN_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+  private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final Path file;
+  private final long leaseSeconds;
+  private final int pid = (int) ProcessHandle.current().pid();
+  private final ReentrantLock local = new ReentrantLock();
+  private final MappedByteBuffer state;
+  private volatile FileChannel channel;
+  private volatile boolean closed;
+
+  public CrossProcessLock(Path file) throws IOException {
+    this(file, Duration.ofSeconds(30));
+  }
+
+  public CrossProcessLock(Path file, Duration lease) throws IOException {
+    if (lease.getSeconds() < 1) {
+      throw new IllegalArgumentException("Lease must be at least one second but was " + lease);
+    }
+    this.file = file;
+    this.leaseSeconds = lease.getSeconds();
+    this.channel = open(file);
+    this.state = channel.map(FileChannel.MapMode.READ_WRITE, STATE_OFFSET, STATE_SIZE);
+  }
+
+  @Override
+  public void lock() {
+    local.lock();
+    if (local.getHoldCount() > 1) {
+      return;
+    }
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          if (acquireShared(Long.MAX_VALUE, false)) {
+            return;
+          }
+        } catch (InterruptedException e) {
+          // lock() is not interruptible: keep the interruption for the caller
+          interrupted = true;
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      local.unlock();
+      throw e instanceof IOException ? new UncheckedIOException((IOException) e) : (RuntimeException) e;
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @Override
+  public void lockInterruptibly() throws InterruptedException {
+    local.lockInterruptibly();
+    if (local.getHoldCount() > 1) {
+      return;
+    }
+    boolean acquired = false;
+    try {
+      acquired = acquireShared(Long.MAX_VALUE, true);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      if (!acquired) {
+        local.unlock();
+      }
+    }
+  }
+
+  @Override
+  public boolean tryLock() {
+    if (!local.tryLock()) {
+      return false;
+    }
+    if (local.getHoldCount() > 1 || tryAcquireOrRecover()) {
+      return true;
+    }
+    local.unlock();
+    return false;
+  }
+
+  @Override
+  public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(time);
+    if (!local.tryLock(time, unit)) {
+      return false;
+    }
+    if (local.getHoldCount() > 1) {
+      return true;
+    }
+    boolean acquired = false;
+    try {
+      acquired = acquireShared(deadline, true);
+      return acquired;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      if (!acquired) {
+        local.unlock();
+      }
+    }
+  }
+
+  @Override
+  public void unlock() {
+    if (!local.isHeldByCurrentThread()) {
+      throw new IllegalMonitorStateException("Current thread doesn't hold the lock on " + file);
+    }
+    try {
+      if (local.getHoldCount() == 1) {
+        long word = (long) WORD.getVolatile(state, STATE_OFFSET);
+        if (ownerOf(word) != pid || !WORD.compareAndSet(state, STATE_OFFSET, word, FREE)) {
+          throw new IllegalMonitorStateException("The lease on " + file + " has expired and the lock was taken over");
+        }
+      }
+    } finally {
+      local.unlock();
+    }
+  }
+
+  /**
+   * Extends the lease of the current owner. Critical sections running longer than the lease have to renew it, otherwise
+   * other processes consider the owner hung and take the lock over.
+   */
+  public void renewLease() {
+    if (!local.isHeldByCurrentThread()) {
+      throw new IllegalMonitorStateException("Current thread doesn't hold the lock on " + file);
+    }
+    long word = (long) WORD.getVolatile(state, STATE_OFFSET);
+    if (ownerOf(word) != pid || !WORD.compareAndSet(state, STATE_OFFSET, word, ownedWord())) {
+      throw new IllegalMonitorStateException("The lease on " + file + " has expired and the lock was taken over");
+    }
+  }
+
+  public boolean isHeldByCurrentThread() {
+    return local.isHeldByCurrentThread();
+  }
+
+  @Override
+  public Condition newCondition() {
+    throw new UnsupportedOperationException("Conditions are not shared between processes");
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    channel.close();
+  }
+
+  private boolean acquireShared(long deadlineNanos, boolean interruptible) throws IOException, InterruptedException {
+    if (tryAcquireOrRecover()) {
+      return true;
+    }
+    FileLock queue = lockQueue(deadlineNanos);
+    if (queue == null) {
+      return false;
+    }
+    try {
+      // we are the first in the queue now, poll the owner until it releases the lock or dies
+      long backoff = MIN_BACKOFF_NANOS;
+      while (!tryAcquireOrRecover()) {
+        if (interruptible && Thread.interrupted()) {
+          throw new InterruptedException("Interrupted while waiting for " + file);
+        }
+        if (System.nanoTime() - deadlineNanos > 0) {
+          return false;
+        }
+        LockSupport.parkNanos(backoff);
+        backoff = Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+      }
+      return true;
+    } finally {
+      queue.release();
+    }
+  }
+
+  /**
+   * An interrupt closes the channel of the thread waiting on it: {@link FileChannel#lock()} reports it as
+   * {@link FileLockInterruptionException}, {@link FileChannel#tryLock()} as a {@link ClosedChannelException}, as does
+   * any call made after the channel has been closed. The channel is reopened with the interrupt status cleared, so
+   * that the caller can retry, and the interrupt is reported as {@link InterruptedException}.
+   */
+  private FileLock lockQueue(long deadlineNanos) throws IOException, InterruptedException {
+    try {
+      return deadlineNanos == Long.MAX_VALUE ? channel.lock(QUEUE_POSITION, 1, false) : tryLockQueue(deadlineNanos);
+    } catch (FileLockInterruptionException | ClosedChannelException e) {
+      if (closed) {
+        throw e;
+      }
+      Thread.interrupted();
+      reopen();
+      throw new InterruptedException("Interrupted while waiting for " + file);
+    }
+  }
+
+  private FileLock tryLockQueue(long deadlineNanos) throws IOException, InterruptedException {
+    long backoff = MIN_BACKOFF_NANOS;
+    while (true) {
+      FileLock queue = channel.tryLock(QUEUE_POSITION, 1, false);
+      if (queue != null) {
+        return queue;
+      }
+      if (Thread.interrupted()) {
+        throw new InterruptedException("Interrupted while waiting for " + file);
+      }
+      if (System.nanoTime() - deadlineNanos > 0) {
+        return null;
+      }
+      LockSupport.parkNanos(backoff);
+      backoff = Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+    }
+  }
+
+  private boolean tryAcquireOrRecover() {
+    long word = (long) WORD.getVolatile(state, STATE_OFFSET);
+    if (word != FREE && !isAbandoned(word)) {
+      return false;
+    }
+    return WORD.compareAndSet(state, STATE_OFFSET, word, ownedWord());
+  }
+
+  private boolean isAbandoned(long word) {
+    if (leaseDeadlineOf(word) < nowSeconds()) {
+      return true;
+    }
+    int owner = ownerOf(word);
+    return owner != pid && !ProcessHandle.of(owner).map(ProcessHandle::isAlive).orElse(false);
+  }
+
+  private long ownedWord() {
+    return ((nowSeconds() + leaseSeconds) << 32) | (pid & 0xFFFFFFFFL);
+  }
+
+  private static int ownerOf(long word) {
+    return (int) word;
+  }
+
+  private static long leaseDeadlineOf(long word) {
+    return word >>> 32;
+  }
+
+  private static long nowSeconds() {
+    return System.currentTimeMillis() / 1000;
+  }
+
+  private void reopen() throws IOException {
+    channel = open(file);
+  }
+
+  private static FileChannel open(Path file) throws IOException {
+    return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+  }
+}
@@ -0,0 +1,30 @@
+package locks;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format shared by {@link LockServer} and {@link RemoteLock}. Requests and responses are fixed size frames:
+ * one byte of operation or status, the request id and the fencing token.
+ */
+final class LockProtocol {
+
+  static final int FRAME_SIZE = Byte.BYTES + Long.BYTES + Long.BYTES;
+
+  // client -> server
+  static final byte ACQUIRE = 1;
+  static final byte TRY_ACQUIRE = 2;
+  static final byte RELEASE = 3;
+
+  // server -> client
+  static final byte GRANTED = 1;
+  static final byte DENIED = 2;
+
+  static final long NO_TOKEN = -1L;
+
+  private LockProtocol() {
+  }
+
+  static void write(ByteBuffer buffer, byte code, long requestId, long token) {
+    buffer.put(code).putLong(requestId).putLong(token);
+  }
+}
@@ -0,0 +1,254 @@
+package locks;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+
+import static locks.LockProtocol.*;
+
+/**
+ * A single logical mutex served over TCP to {@link RemoteLock} clients. One selector thread owns all the state, so the
+ * server needs no synchronization. Waiters are granted in FIFO order, every grant gets a new, strictly increasing
+ * fencing token, and a client that disconnects loses the lock and its place in the queue.
+ * <p>
+ * Responses produced while handling one batch of ready connections are written to each connection at once.
+ */
+public class LockServer implements Closeable {
+
+  private static final int BUFFER_SIZE = 64 * FRAME_SIZE;
+
+  private final Selector selector;
+  private final ServerSocketChannel serverChannel;
+  private final Thread selectorThread;
+  private final Queue<Waiter> waiters = new ArrayDeque<>();
+  private final List<Connection> toFlush = new ArrayList<>();
+  private volatile boolean running = true;
+  private Connection owner;
+  private long lastToken = 0;
+
+  public LockServer(InetSocketAddress address) throws IOException {
+    selector = Selector.open();
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.bind(address, 1024);
+    serverChannel.configureBlocking(false);
+    serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    selectorThread = new Thread(this::run, "lock-server-" + address.getPort());
+    selectorThread.setDaemon(true);
+  }
+
+  public LockServer start() {
+    selectorThread.start();
+    return this;
+  }
+
+  public InetSocketAddress address() throws IOException {
+    return (InetSocketAddress) serverChannel.getLocalAddress();
+  }
+
+  @Override
+  public void close() throws IOException {
+    running = false;
+    selector.wakeup();
+    try {
+      selectorThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    for (SelectionKey key : selector.keys()) {
+      key.channel().close();
+    }
+    selector.close();
+  }
+
+  private void run() {
+    try {
+      while (running) {
+        selector.select();
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          handle(key);
+        }
+        flush();
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Lock server failed", e);
+    }
+  }
+
+  private void handle(SelectionKey key) throws IOException {
+    if (!key.isValid()) {
+      return;
+    }
+    if (key.isAcceptable()) {
+      SocketChannel channel = serverChannel.accept();
+      if (channel != null) {
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        SelectionKey connectionKey = channel.register(selector, SelectionKey.OP_READ);
+        connectionKey.attach(new Connection(connectionKey));
+      }
+      return;
+    }
+    Connection connection = (Connection) key.attachment();
+    try {
+      if (key.isWritable()) {
+        connection.write();
+      }
+      if (key.isValid() && key.isReadable()) {
+        connection.read();
+      }
+    } catch (IOException e) {
+      disconnect(connection);
+    }
+  }
+
+  private void flush() {
+    for (Connection connection : toFlush) {
+      try {
+        connection.write();
+      } catch (IOException e) {
+        disconnect(connection);
+      }
+    }
+    toFlush.clear();
+  }
+
+  private void onRequest(Connection connection, byte operation, long requestId, long token) {
+    switch (operation) {
+      case ACQUIRE:
+        if (owner == null) {
+          grant(connection, requestId);
+        } else {
+          waiters.add(new Waiter(connection, requestId));
+        }
+        break;
+      case TRY_ACQUIRE:
+        if (owner == null) {
+          grant(connection, requestId);
+        } else {
+          connection.reply(DENIED, requestId, NO_TOKEN);
+        }
+        break;
+      case RELEASE:
+        // a release with an old token comes from a client that has already lost the lock
+        if (owner == connection && token == lastToken) {
+          owner = null;
+          grantNext();
+        }
+        break;
+      default:
+        disconnect(connection);
+    }
+  }
+
+  private void grant(Connection connection, long requestId) {
+    owner = connection;
+    connection.reply(GRANTED, requestId, ++lastToken);
+  }
+
+  private void grantNext() {
+    Waiter next;
+    while ((next = waiters.poll()) != null) {
+      if (next.connection.isOpen()) {
+        grant(next.connection, next.requestId);
+        return;
+      }
+    }
+  }
+
+  private void disconnect(Connection connection) {
+    connection.close();
+    if (owner == connection) {
+      owner = null;
+      grantNext();
+    }
+  }
+
+  private static class Waiter {
+    private final Connection connection;
+    private final long requestId;
+
+    private Waiter(Connection connection, long requestId) {
+      this.connection = connection;
+      this.requestId = requestId;
+    }
+  }
+
+  private class Connection {
+    private final SelectionKey key;
+    private final SocketChannel channel;
+    private final ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+    private ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private Connection(SelectionKey key) {
+      this.key = key;
+      this.channel = (SocketChannel) key.channel();
+    }
+
+    private void read() throws IOException {
+      int read;
+      while ((read = channel.read(in)) > 0) {
+        in.flip();
+        while (in.remaining() >= FRAME_SIZE) {
+          onRequest(this, in.get(), in.getLong(), in.getLong());
+          if (!isOpen()) {
+            return;
+          }
+        }
+        in.compact();
+      }
+      if (read < 0) {
+        disconnect(this);
+      }
+    }
+
+    private void reply(byte status, long requestId, long token) {
+      if (out.position() == 0) {
+        toFlush.add(this);
+      }
+      if (out.remaining() < FRAME_SIZE) {
+        ByteBuffer bigger = ByteBuffer.allocate(out.capacity() * 2);
+        out.flip();
+        out = bigger.put(out);
+      }
+      LockProtocol.write(out, status, requestId, token);
+    }
+
+    private void write() throws IOException {
+      if (!isOpen() || out.position() == 0) {
+        return;
+      }
+      out.flip();
+      channel.write(out);
+      out.compact();
+      // the socket buffer is full: wait until the channel is writable again
+      key.interestOps(out.position() == 0 ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+
+    private boolean isOpen() {
+      return channel.isOpen();
+    }
+
+    private void close() {
+      key.cancel();
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // nothing to do, the connection is gone anyway
+      }
+    }
+  }
+}
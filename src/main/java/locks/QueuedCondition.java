@@ -0,0 +1,143 @@
+package locks;
+
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link Condition} for locks that are not built on {@link java.util.concurrent.locks.AbstractQueuedSynchronizer}.
+ * Waiters are parked in FIFO order. The waiters queue is guarded by the owner lock, so every method has to be called by
+ * the thread holding it, as with {@link java.util.concurrent.locks.ReentrantLock#newCondition()}.
+ */
+class QueuedCondition implements Condition {
+
+  interface Owner {
+
+    boolean isHeldByCurrentThread();
+
+    /**
+     * Releases the lock completely and returns the number of holds to restore later.
+     */
+    int releaseAll();
+
+    /**
+     * Acquires the lock uninterruptibly and restores the number of holds.
+     */
+    void reacquire(int holds);
+  }
+
+  private final Owner owner;
+  private final Queue<Waiter> waiters = new ArrayDeque<>();
+
+  QueuedCondition(Owner owner) {
+    this.owner = owner;
+  }
+
+  @Override
+  public void await() throws InterruptedException {
+    awaitNanos(Long.MAX_VALUE, true);
+  }
+
+  @Override
+  public void awaitUninterruptibly() {
+    try {
+      awaitNanos(Long.MAX_VALUE, false);
+    } catch (InterruptedException e) {
+      throw new IllegalStateException("Uninterruptible wait is interrupted", e);
+    }
+  }
+
+  @Override
+  public long awaitNanos(long nanosTimeout) throws InterruptedException {
+    return awaitNanos(nanosTimeout, true);
+  }
+
+  @Override
+  public boolean await(long time, TimeUnit unit) throws InterruptedException {
+    return awaitNanos(unit.toNanos(time), true) > 0;
+  }
+
+  @Override
+  public boolean awaitUntil(Date deadline) throws InterruptedException {
+    return await(deadline.getTime() - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void signal() {
+    checkHeld();
+    Waiter waiter = waiters.poll();
+    if (waiter != null) {
+      waiter.wakeUp();
+    }
+  }
+
+  @Override
+  public void signalAll() {
+    checkHeld();
+    Waiter waiter;
+    while ((waiter = waiters.poll()) != null) {
+      waiter.wakeUp();
+    }
+  }
+
+  private long awaitNanos(long nanosTimeout, boolean interruptible) throws InterruptedException {
+    checkHeld();
+    if (interruptible && Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+    Waiter waiter = new Waiter(Thread.currentThread());
+    waiters.add(waiter);
+    int holds = owner.releaseAll();
+    boolean interrupted = false;
+    long deadline = System.nanoTime() + nanosTimeout;
+    long remaining = nanosTimeout;
+    while (!waiter.signalled && remaining > 0) {
+      if (nanosTimeout == Long.MAX_VALUE) {
+        LockSupport.park(this);
+      } else {
+        LockSupport.parkNanos(this, remaining);
+        remaining = deadline - System.nanoTime();
+      }
+      if (Thread.interrupted()) {
+        interrupted = true;
+        if (interruptible) {
+          break;
+        }
+      }
+    }
+    owner.reacquire(holds);
+    if (!waiter.signalled) {
+      waiters.remove(waiter);
+    }
+    if (interrupted) {
+      if (interruptible && !waiter.signalled) {
+        throw new InterruptedException();
+      }
+      Thread.currentThread().interrupt();
+    }
+    return waiter.signalled ? Math.max(remaining, 1) : remaining;
+  }
+
+  private void checkHeld() {
+    if (!owner.isHeldByCurrentThread()) {
+      throw new IllegalMonitorStateException("Current thread doesn't hold the lock");
+    }
+  }
+
+  private static class Waiter {
+    private final Thread thread;
+    private volatile boolean signalled;
+
+    private Waiter(Thread thread) {
+      this.thread = thread;
+    }
+
+    private void wakeUp() {
+      signalled = true;
+      LockSupport.unpark(thread);
+    }
+  }
+}
@@ -0,0 +1,306 @@
+package locks;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+import static locks.LockProtocol.*;
+
+/**
+ * A client of {@link LockServer}. All the threads using the same instance share one connection: their requests are
+ * pipelined without waiting for each other's responses, and a writer thread sends everything queued so far in one write.
+ * {@link #unlock()} doesn't wait for the server at all, so another client may see the lock free slightly later.
+ * <p>
+ * The lock is reentrant. Each acquisition is given a fencing token by the server, so the resources protected by the
+ * lock can reject writes from a client that has lost the lock in the meantime.
+ */
+public class RemoteLock implements Lock, Closeable {
+
+  private static final int BUFFER_SIZE = 256 * FRAME_SIZE;
+
+  private final SocketChannel channel;
+  private final Map<Long, CompletableFuture<Long>> pending = new ConcurrentHashMap<>();
+  private final BlockingQueue<long[]> outgoing = new LinkedBlockingQueue<>();
+  private final AtomicLong requestIds = new AtomicLong();
+  private final Thread reader;
+  private final Thread writer;
+  private volatile Thread owner;
+  private volatile long fencingToken = NO_TOKEN;
+  private int holds;
+
+  public RemoteLock(InetSocketAddress server) throws IOException {
+    channel = SocketChannel.open(server);
+    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    reader = new Thread(this::readResponses, "remote-lock-reader");
+    reader.setDaemon(true);
+    reader.start();
+    writer = new Thread(this::writeRequests, "remote-lock-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  @Override
+  public void lock() {
+    if (reenter()) {
+      return;
+    }
+    try {
+      onAcquired(request(ACQUIRE).join());
+    } catch (CompletionException e) {
+      throw new IllegalStateException("Connection to the lock server is lost", e.getCause());
+    }
+  }
+
+  @Override
+  public void lockInterruptibly() throws InterruptedException {
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+    if (reenter()) {
+      return;
+    }
+    CompletableFuture<Long> acquisition = request(ACQUIRE);
+    try {
+      onAcquired(acquisition.get());
+    } catch (InterruptedException e) {
+      // if the lock is granted later, it's released as soon as the response arrives
+      if (!acquisition.cancel(false)) {
+        // granted right after the wait ended, the server holds the lock for us
+        releaseGranted(acquisition);
+      }
+      throw e;
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Connection to the lock server is lost", e.getCause());
+    }
+  }
+
+  @Override
+  public boolean tryLock() {
+    if (reenter()) {
+      return true;
+    }
+    try {
+      long token = request(TRY_ACQUIRE).join();
+      if (token == NO_TOKEN) {
+        return false;
+      }
+      onAcquired(token);
+      return true;
+    } catch (CompletionException e) {
+      throw new IllegalStateException("Connection to the lock server is lost", e.getCause());
+    }
+  }
+
+  @Override
+  public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+    if (reenter()) {
+      return true;
+    }
+    CompletableFuture<Long> acquisition = request(ACQUIRE);
+    try {
+      onAcquired(acquisition.get(time, unit));
+      return true;
+    } catch (InterruptedException e) {
+      if (!acquisition.cancel(false)) {
+        releaseGranted(acquisition);
+      }
+      throw e;
+    } catch (TimeoutException e) {
+      if (acquisition.cancel(false)) {
+        return false;
+      }
+      // granted right after the timeout, it's too late to give up
+      return acquired(acquisition);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Connection to the lock server is lost", e.getCause());
+    }
+  }
+
+  @Override
+  public void unlock() {
+    if (owner != Thread.currentThread()) {
+      throw new IllegalMonitorStateException("Current thread doesn't hold the lock");
+    }
+    if (--holds > 0) {
+      return;
+    }
+    long token = fencingToken;
+    fencingToken = NO_TOKEN;
+    owner = null;
+    send(RELEASE, 0, token);
+  }
+
+  /**
+   * Returns the fencing token of the current acquisition. Tokens grow with every acquisition served by the server.
+   */
+  public long getFencingToken() {
+    if (owner != Thread.currentThread()) {
+      throw new IllegalMonitorStateException("Current thread doesn't hold the lock");
+    }
+    return fencingToken;
+  }
+
+  public boolean isHeldByCurrentThread() {
+    return owner == Thread.currentThread();
+  }
+
+  @Override
+  public Condition newCondition() {
+    return new QueuedCondition(new QueuedCondition.Owner() {
+      @Override
+      public boolean isHeldByCurrentThread() {
+        return RemoteLock.this.isHeldByCurrentThread();
+      }
+
+      @Override
+      public int releaseAll() {
+        int released = holds;
+        holds = 1;
+        unlock();
+        return released;
+      }
+
+      @Override
+      public void reacquire(int released) {
+        lock();
+        holds = released;
+      }
+    });
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+    writer.interrupt();
+  }
+
+  private boolean reenter() {
+    if (owner == Thread.currentThread()) {
+      holds++;
+      return true;
+    }
+    return false;
+  }
+
+  private void onAcquired(long token) {
+    owner = Thread.currentThread();
+    fencingToken = token;
+    holds = 1;
+  }
+
+  /**
+   * Takes the lock whose request has completed after the caller stopped waiting. A response that isn't a grant (or a
+   * lost connection) means the lock isn't held.
+   */
+  private boolean acquired(CompletableFuture<Long> acquisition) {
+    try {
+      long token = acquisition.join();
+      if (token == NO_TOKEN) {
+        return false;
+      }
+      onAcquired(token);
+      return true;
+    } catch (CompletionException e) {
+      throw new IllegalStateException("Connection to the lock server is lost", e.getCause());
+    }
+  }
+
+  private void releaseGranted(CompletableFuture<Long> acquisition) {
+    try {
+      long token = acquisition.join();
+      if (token != NO_TOKEN) {
+        send(RELEASE, 0, token);
+      }
+    } catch (CompletionException e) {
+      // the connection is lost, the server drops the lock with it
+    }
+  }
+
+  private CompletableFuture<Long> request(byte operation) {
+    long requestId = requestIds.incrementAndGet();
+    CompletableFuture<Long> response = new CompletableFuture<>();
+    pending.put(requestId, response);
+    send(operation, requestId, NO_TOKEN);
+    if (!channel.isOpen()) {
+      failPending(new IOException("Connection is closed"));
+    }
+    return response;
+  }
+
+  private void send(byte operation, long requestId, long token) {
+    outgoing.add(new long[] {operation, requestId, token});
+  }
+
+  private void onResponse(byte status, long requestId, long token) {
+    CompletableFuture<Long> response = pending.remove(requestId);
+    boolean delivered = response != null && response.complete(status == GRANTED ? token : NO_TOKEN);
+    if (status == GRANTED && !delivered) {
+      // the waiter has given up, nobody is going to use the lock
+      send(RELEASE, 0, token);
+    }
+  }
+
+  private void writeRequests() {
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    List<long[]> batch = new ArrayList<>();
+    try {
+      while (channel.isOpen()) {
+        batch.add(outgoing.take());
+        outgoing.drainTo(batch, BUFFER_SIZE / FRAME_SIZE - 1);
+        for (long[] request : batch) {
+          LockProtocol.write(buffer, (byte) request[0], request[1], request[2]);
+        }
+        batch.clear();
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        buffer.clear();
+      }
+    } catch (InterruptedException | IOException e) {
+      failPending(e);
+    }
+  }
+
+  private void readResponses() {
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    try {
+      while (channel.read(buffer) >= 0) {
+        buffer.flip();
+        while (buffer.remaining() >= FRAME_SIZE) {
+          onResponse(buffer.get(), buffer.getLong(), buffer.getLong());
+        }
+        buffer.compact();
+      }
+      failPending(new IOException("Lock server closed the connection"));
+    } catch (IOException e) {
+      failPending(e);
+    }
+  }
+
+  private void failPending(Exception cause) {
+    for (Long requestId : pending.keySet()) {
+      CompletableFuture<Long> response = pending.remove(requestId);
+      if (response != null) {
+        response.completeExceptionally(cause);
+      }
+    }
+  }
+}
@@ -0,0 +1,347 @@
+package locks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A read-write lock with a third, upgradable read mode for check-then-act code. The upgradable lock is held by one
+ * thread at a time and coexists with plain readers; its holder takes the write lock without letting anybody in between,
+ * so what it has read stays true and it doesn't need to check again:
+ * <pre>{@code
+ * lock.upgradableLock().lock();
+ * try {
+ *   if (needsUpdate()) {
+ *     lock.writeLock().lock(); // waits for the plain readers to leave
+ *     try {
+ *       update();
+ *     } finally {
+ *       lock.writeLock().unlock(); // back to the upgradable mode
+ *     }
+ *   }
+ * } finally {
+ *   lock.upgradableLock().unlock();
+ * }
+ * }</pre>
+ * A writer, or an upgradable reader, downgrades by taking the read lock before releasing its lock. Taking the write or
+ * the upgradable lock while holding only the read lock would deadlock two such readers, so it throws
+ * {@link IllegalMonitorStateException}. Waiting writers keep new readers out so they aren't starved. All the locks are
+ * reentrant.
+ * <p>
+ * While no writer holds or waits for the lock, a read lock is taken and released with a CAS on a shared reader count.
+ * The upgradable and the write locks go through an internal mutex, which readers take only when a writer is around.
+ */
+public class UpgradableReadWriteLock implements ReadWriteLock {
+
+  private enum Mode { READ, UPGRADABLE, WRITE }
+
+  // set while a writer holds the lock or waits for it, readers without holds then take the slow path
+  private static final int WRITER = 1 << 30;
+  private static final int READERS = WRITER - 1;
+
+  // the number of read holds and the WRITER bit, plain readers only touch this one
+  private final AtomicInteger state = new AtomicInteger();
+  private final ThreadLocal<int[]> readHolds = ThreadLocal.withInitial(() -> new int[1]);
+  // guards everything below, and is taken by readers only when a writer is around
+  private final ReentrantLock sync = new ReentrantLock();
+  private final Condition changed = sync.newCondition();
+  private final Lock readLock = new ModeLock(Mode.READ);
+  private final Lock upgradableLock = new ModeLock(Mode.UPGRADABLE);
+  private final Lock writeLock = new ModeLock(Mode.WRITE);
+  private Thread upgrader;
+  private int upgradeHolds;
+  private Thread writer;
+  private int writeHolds;
+  private int waitingWriters;
+
+  @Override
+  public Lock readLock() {
+    return readLock;
+  }
+
+  /**
+   * The upgradable read lock. Its {@link Lock#newCondition()} is not supported.
+   */
+  public Lock upgradableLock() {
+    return upgradableLock;
+  }
+
+  @Override
+  public Lock writeLock() {
+    return writeLock;
+  }
+
+  public int getReadLockCount() {
+    return state.get() & READERS;
+  }
+
+  public boolean isWriteLocked() {
+    sync.lock();
+    try {
+      return writer != null;
+    } finally {
+      sync.unlock();
+    }
+  }
+
+  public boolean isUpgradableLocked() {
+    sync.lock();
+    try {
+      return upgrader != null;
+    } finally {
+      sync.unlock();
+    }
+  }
+
+  private boolean acquire(Mode mode, boolean interruptible, long nanosTimeout) throws InterruptedException {
+    if (mode == Mode.READ && tryAcquireReadFast()) {
+      return true;
+    }
+    Thread current = Thread.currentThread();
+    sync.lock();
+    try {
+      checkUsage(mode, current);
+      boolean waitingAsWriter = false;
+      boolean acquired = false;
+      if (mode == Mode.WRITE) {
+        // before counting the readers, so no new reader slips in through the fast path
+        state.getAndUpdate(s -> s | WRITER);
+      }
+      try {
+        long remaining = nanosTimeout;
+        while (!canAcquire(mode, current)) {
+          if (remaining <= 0) {
+            return false;
+          }
+          if (mode == Mode.WRITE && !waitingAsWriter) {
+            waitingWriters++;
+            waitingAsWriter = true;
+          }
+          if (!interruptible) {
+            changed.awaitUninterruptibly();
+          } else if (nanosTimeout == Long.MAX_VALUE) {
+            changed.await();
+          } else {
+            remaining = changed.awaitNanos(remaining);
+          }
+        }
+        grant(mode);
+        acquired = true;
+        return true;
+      } finally {
+        if (waitingAsWriter) {
+          waitingWriters--;
+        }
+        if (mode == Mode.WRITE && !acquired && clearWriterIfNone()) {
+          // readers kept out for this writer may go now
+          changed.signalAll();
+        }
+      }
+    } finally {
+      sync.unlock();
+    }
+  }
+
+  /**
+   * A read lock is taken with a CAS on the reader count as long as no writer holds or waits for the lock.
+   */
+  private boolean tryAcquireReadFast() {
+    int s = state.get();
+    if ((s & WRITER) != 0 || !state.compareAndSet(s, checkedIncrement(s))) {
+      return false;
+    }
+    readHolds.get()[0]++;
+    return true;
+  }
+
+  private void checkUsage(Mode mode, Thread current) {
+    if (mode != Mode.READ && readHolds.get()[0] > 0 && writer != current && upgrader != current) {
+      throw new IllegalMonitorStateException("Read lock can't be upgraded, take the upgradable lock instead");
+    }
+  }
+
+  private boolean canAcquire(Mode mode, Thread current) {
+    boolean noOtherWriter = writer == null || writer == current;
+    switch (mode) {
+      case READ:
+        return noOtherWriter
+            && (waitingWriters == 0 || readHolds.get()[0] > 0 || upgrader == current || writer == current);
+      case UPGRADABLE:
+        return noOtherWriter && (upgrader == null || upgrader == current)
+            && (waitingWriters == 0 || upgrader == current || writer == current);
+      default:
+        int otherReaders = (state.get() & READERS) - readHolds.get()[0];
+        return noOtherWriter && (upgrader == null || upgrader == current) && otherReaders == 0;
+    }
+  }
+
+  private void grant(Mode mode) {
+    switch (mode) {
+      case READ:
+        state.getAndUpdate(UpgradableReadWriteLock::checkedIncrement);
+        readHolds.get()[0]++;
+        break;
+      case UPGRADABLE:
+        upgrader = Thread.currentThread();
+        upgradeHolds++;
+        break;
+      default:
+        writer = Thread.currentThread();
+        writeHolds++;
+    }
+  }
+
+  private boolean clearWriterIfNone() {
+    if (writer != null || waitingWriters > 0) {
+      return false;
+    }
+    state.getAndUpdate(s -> s & ~WRITER);
+    return true;
+  }
+
+  private void release(Mode mode) {
+    if (mode == Mode.READ) {
+      releaseRead();
+      return;
+    }
+    Thread current = Thread.currentThread();
+    sync.lock();
+    try {
+      if (mode == Mode.UPGRADABLE) {
+        if (upgrader != current) {
+          throw new IllegalMonitorStateException("Current thread doesn't hold the " + mode + " lock");
+        }
+        if (--upgradeHolds == 0) {
+          upgrader = null;
+        }
+      } else {
+        if (writer != current) {
+          throw new IllegalMonitorStateException("Current thread doesn't hold the " + mode + " lock");
+        }
+        if (--writeHolds == 0) {
+          writer = null;
+          clearWriterIfNone();
+        }
+      }
+      changed.signalAll();
+    } finally {
+      sync.unlock();
+    }
+  }
+
+  private void releaseRead() {
+    int[] holds = readHolds.get();
+    if (holds[0] == 0) {
+      throw new IllegalMonitorStateException("Current thread doesn't hold the " + Mode.READ + " lock");
+    }
+    holds[0]--;
+    if ((state.decrementAndGet() & WRITER) != 0) {
+      // a writer may be waiting for the readers to leave
+      sync.lock();
+      try {
+        changed.signalAll();
+      } finally {
+        sync.unlock();
+      }
+    }
+  }
+
+  private static int checkedIncrement(int s) {
+    if ((s & READERS) == READERS) {
+      throw new Error("Maximum read lock count exceeded");
+    }
+    return s + 1;
+  }
+
+  private class ModeLock implements Lock {
+    private final Mode mode;
+
+    private ModeLock(Mode mode) {
+      this.mode = mode;
+    }
+
+    @Override
+    public void lock() {
+      try {
+        acquire(mode, false, Long.MAX_VALUE);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException("Uninterruptible acquisition is interrupted", e);
+      }
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      acquire(mode, true, Long.MAX_VALUE);
+    }
+
+    @Override
+    public boolean tryLock() {
+      try {
+        return acquire(mode, false, 0);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException("Uninterruptible acquisition is interrupted", e);
+      }
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      return acquire(mode, true, unit.toNanos(time));
+    }
+
+    @Override
+    public void unlock() {
+      release(mode);
+    }
+
+    @Override
+    public Condition newCondition() {
+      if (mode != Mode.WRITE) {
+        throw new UnsupportedOperationException("Only the write lock supports conditions");
+      }
+      return new QueuedCondition(new QueuedCondition.Owner() {
+        @Override
+        public boolean isHeldByCurrentThread() {
+          sync.lock();
+          try {
+            return writer == Thread.currentThread();
+          } finally {
+            sync.unlock();
+          }
+        }
+
+        @Override
+        public int releaseAll() {
+          sync.lock();
+          try {
+            int holds = writeHolds;
+            writeHolds = 1;
+            release(Mode.WRITE);
+            return holds;
+          } finally {
+            sync.unlock();
+          }
+        }
+
+        @Override
+        public void reacquire(int holds) {
+          lock();
+          sync.lock();
+          try {
+            writeHolds = holds;
+          } finally {
+            sync.unlock();
+          }
+        }
+      });
+    }
+  }
+}
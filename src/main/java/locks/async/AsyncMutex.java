@@ -0,0 +1,73 @@
+package locks.async;
+
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A mutex for code that must never block, e.g. event loops. {@link #acquire()} returns a stage that completes with a
+ * {@link Permit} once the mutex is free.
+ * <p>
+ * The state is a single counter of the owner plus the queued waiters, so an uncontended acquisition is one atomic
+ * increment and returns an already completed stage. Waiters are queued in a lock-free FIFO queue. Ownership is handed
+ * over on the executor given to the constructor, which keeps chains of continuations from growing the stack of the
+ * releasing thread. A waiter is cancelled by completing its future, e.g. with {@code cancel()} or {@code orTimeout()}.
+ */
+public class AsyncMutex {
+
+  private final Executor executor;
+  private final AtomicInteger ownerAndWaiters = new AtomicInteger();
+  private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+  public AsyncMutex(Executor executor) {
+    this.executor = executor;
+  }
+
+  public CompletionStage<Permit> acquire() {
+    if (ownerAndWaiters.getAndIncrement() == 0) {
+      return CompletableFuture.completedFuture(new MutexPermit());
+    }
+    Waiter waiter = new Waiter(true, () -> {});
+    waiters.add(waiter);
+    return waiter.future;
+  }
+
+  public Optional<Permit> tryAcquire() {
+    return ownerAndWaiters.compareAndSet(0, 1) ? Optional.of(new MutexPermit()) : Optional.empty();
+  }
+
+  public boolean isLocked() {
+    return ownerAndWaiters.get() > 0;
+  }
+
+  private void release() {
+    // every iteration gives up the count of the previous owner or of a cancelled waiter
+    while (ownerAndWaiters.decrementAndGet() > 0) {
+      Waiter next;
+      while ((next = waiters.poll()) == null) {
+        // the waiter has been counted but isn't in the queue yet
+        Thread.onSpinWait();
+      }
+      if (next.grant(MutexPermit::new, executor)) {
+        return;
+      }
+    }
+  }
+
+  private class MutexPermit implements Permit {
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    @Override
+    public void release() {
+      if (!released.compareAndSet(false, true)) {
+        throw new IllegalStateException("The permit is already released");
+      }
+      AsyncMutex.this.release();
+    }
+  }
+}
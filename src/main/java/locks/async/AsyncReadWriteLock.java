@@ -0,0 +1,117 @@
+package locks.async;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A read-write lock for code that must never block. Acquisitions and releases are queued in a lock-free queue and
+ * applied by whichever thread finds nobody else applying them, so no thread ever waits for another one. Waiters are
+ * granted in FIFO order: a reader queued behind a writer waits for it, which keeps writers from starving. Grants are
+ * completed on the executor given to the constructor. A waiter is cancelled by completing its future.
+ */
+public class AsyncReadWriteLock {
+
+  private enum Release {
+    READ, WRITE
+  }
+
+  private final Executor executor;
+  private final Queue<Object> events = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pendingDrains = new AtomicInteger();
+  // the state below is touched only by the thread draining the events
+  private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+  private int readers;
+  private boolean writer;
+
+  public AsyncReadWriteLock(Executor executor) {
+    this.executor = executor;
+  }
+
+  public CompletionStage<Permit> acquireRead() {
+    return enqueue(false);
+  }
+
+  public CompletionStage<Permit> acquireWrite() {
+    return enqueue(true);
+  }
+
+  private CompletionStage<Permit> enqueue(boolean exclusive) {
+    Waiter waiter = new Waiter(exclusive, this::drain);
+    events.add(waiter);
+    drain();
+    return waiter.future;
+  }
+
+  private void drain() {
+    if (pendingDrains.getAndIncrement() != 0) {
+      return;
+    }
+    int missed = 1;
+    do {
+      Object event;
+      while ((event = events.poll()) != null) {
+        apply(event);
+      }
+      grantWaiters();
+      missed = pendingDrains.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  private void apply(Object event) {
+    if (event == Release.READ) {
+      readers--;
+    } else if (event == Release.WRITE) {
+      writer = false;
+    } else {
+      waiters.add((Waiter) event);
+    }
+  }
+
+  private void grantWaiters() {
+    Waiter next;
+    while ((next = waiters.peek()) != null) {
+      if (next.isCancelled()) {
+        waiters.poll();
+      } else if (next.exclusive) {
+        if (writer || readers > 0) {
+          return;
+        }
+        waiters.poll();
+        if (next.grant(() -> new RwPermit(Release.WRITE), executor)) {
+          writer = true;
+        }
+      } else {
+        if (writer) {
+          return;
+        }
+        waiters.poll();
+        if (next.grant(() -> new RwPermit(Release.READ), executor)) {
+          readers++;
+        }
+      }
+    }
+  }
+
+  private class RwPermit implements Permit {
+    private final Release release;
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    private RwPermit(Release release) {
+      this.release = release;
+    }
+
+    @Override
+    public void release() {
+      if (!released.compareAndSet(false, true)) {
+        throw new IllegalStateException("The permit is already released");
+      }
+      events.add(release);
+      drain();
+    }
+  }
+}
@@ -0,0 +1,15 @@
+package locks.async;
+
+/**
+ * Ownership of an asynchronous lock. It has to be released exactly once, the usual way is try-with-resources inside
+ * the completion stage.
+ */
+public interface Permit extends AutoCloseable {
+
+  void release();
+
+  @Override
+  default void close() {
+    release();
+  }
+}
@@ -0,0 +1,59 @@
+package locks.async;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A queued acquisition. Cancellation only flips the state, so it's O(1): the lock skips cancelled waiters when it
+ * grants ownership.
+ */
+class Waiter {
+  private static final int WAITING = 0;
+  private static final int GRANTED = 1;
+  private static final int CANCELLED = 2;
+
+  final boolean exclusive;
+  final CompletableFuture<Permit> future = new CompletableFuture<>();
+  private final AtomicInteger state = new AtomicInteger(WAITING);
+
+  Waiter(boolean exclusive, Runnable onCancel) {
+    this.exclusive = exclusive;
+    // cancel(), a timeout or any other exceptional completion by the caller gives the place in the queue up
+    future.whenComplete((permit, e) -> {
+      if (e != null && state.compareAndSet(WAITING, CANCELLED)) {
+        onCancel.run();
+      }
+    });
+  }
+
+  boolean isCancelled() {
+    return state.get() == CANCELLED;
+  }
+
+  /**
+   * Completes the waiter on the executor, so the continuation doesn't run on the stack of the releasing thread.
+   *
+   * @return false if the waiter is cancelled and the permit has to be given to somebody else
+   */
+  boolean grant(Supplier<Permit> permits, Executor executor) {
+    if (!state.compareAndSet(WAITING, GRANTED)) {
+      return false;
+    }
+    Permit permit = permits.get();
+    Runnable complete = () -> {
+      if (!future.complete(permit)) {
+        // cancelled after the grant
+        permit.release();
+      }
+    };
+    try {
+      executor.execute(complete);
+    } catch (RejectedExecutionException e) {
+      complete.run();
+    }
+    return true;
+  }
+}
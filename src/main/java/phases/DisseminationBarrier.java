@@ -0,0 +1,129 @@
+package phases;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A barrier for a fixed number of parties that scales to hundreds of threads. Unlike {@link PhaseSync} there is no
+ * central lock: in each of the ceil(log2(n)) rounds of an episode a party sets a flag of its partner and spins on its own
+ * flag, so it touches O(log n) cache lines per episode. Flags are reused with sense reversal and never reset.
+ * A waiting party spins only while there are enough cores for all the parties, then yields and finally parks until its
+ * partner sets the flag.
+ * <p>
+ * Each thread registers once and gets its own {@link Participant}, which offers a {@link java.util.concurrent.Phaser}
+ * style API.
+ */
+public class DisseminationBarrier {
+
+  // 16 ints are 64 bytes, so every flag gets a cache line of its own
+  private static final int STRIDE = 16;
+  private static final int NCPU = Runtime.getRuntime().availableProcessors();
+  private static final int YIELDS_BEFORE_PARK = 1 << 4;
+
+  private final int parties;
+  private final int rounds;
+  private final Participant[] participants;
+  private final AtomicInteger registered = new AtomicInteger();
+  private final int spins;
+
+  public DisseminationBarrier(int parties) {
+    if (parties < 1) {
+      throw new IllegalArgumentException("There should be at least one party but was " + parties);
+    }
+    this.parties = parties;
+    this.rounds = 32 - Integer.numberOfLeadingZeros(parties - 1);
+    this.participants = new Participant[parties];
+    // spinning makes sense only if the partner is running on another core
+    this.spins = parties <= NCPU ? 1 << 10 : 0;
+    for (int i = 0; i < parties; i++) {
+      participants[i] = new Participant(i);
+    }
+  }
+
+  /**
+   * Returns the participant of the calling thread. Every party has to register once and use its participant only from
+   * one thread.
+   */
+  public Participant register() {
+    int id = registered.getAndIncrement();
+    if (id >= parties) {
+      throw new IllegalStateException("All " + parties + " parties are already registered");
+    }
+    return participants[id];
+  }
+
+  public int getParties() {
+    return parties;
+  }
+
+  public final class Participant {
+    private final int id;
+    // flags[parity][round], written by the partners and read only by this participant
+    private final AtomicIntegerArray flags = new AtomicIntegerArray(2 * rounds * STRIDE + STRIDE);
+    private int parity = 0;
+    private int sense = 1;
+    private int phase = 0;
+    private volatile Thread parked;
+
+    private Participant(int id) {
+      this.id = id;
+    }
+
+    /**
+     * Arrives at the barrier and waits for the other parties.
+     *
+     * @return the number of the phase started by this episode
+     */
+    public int arriveAndAwaitAdvance() {
+      for (int round = 0; round < rounds; round++) {
+        Participant partner = participants[(id + (1 << round)) % parties];
+        partner.flags.set(flagIndex(parity, round), sense);
+        Thread partnerThread = partner.parked;
+        if (partnerThread != null) {
+          LockSupport.unpark(partnerThread);
+        }
+        awaitFlag(flagIndex(parity, round));
+      }
+      if (parity == 1) {
+        sense = 1 - sense;
+      }
+      parity = 1 - parity;
+      return ++phase;
+    }
+
+    public int getPhase() {
+      return phase;
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    private void awaitFlag(int index) {
+      for (int i = 0; i < spins; i++) {
+        if (flags.get(index) == sense) {
+          return;
+        }
+        Thread.onSpinWait();
+      }
+      for (int i = 0; i < YIELDS_BEFORE_PARK; i++) {
+        if (flags.get(index) == sense) {
+          return;
+        }
+        Thread.yield();
+      }
+      // the partner checks parked after setting the flag, so either it sees us or we see the flag
+      parked = Thread.currentThread();
+      while (flags.get(index) != sense) {
+        LockSupport.park(this);
+      }
+      parked = null;
+    }
+
+    private int flagIndex(int parity, int round) {
+      // the first line is left empty to pad the flags from the array header
+      return STRIDE + (parity * rounds + round) * STRIDE;
+    }
+  }
+}
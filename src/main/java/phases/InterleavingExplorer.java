@@ -0,0 +1,286 @@
+package phases;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Finds a race by trying every interleaving of the actors' steps instead of hand-writing {@link PhaseSync} plans.
+ * <p>
+ * Each actor is a sequence of steps. A step declares the shared variable it reads or writes, which lets the explorer
+ * skip interleavings that differ only in the order of independent steps (partial-order reduction): only the
+ * lexicographically smallest interleaving of each equivalence class is run. Every interleaving becomes a
+ * {@link PhaseSync} schedule that is executed on a fresh state, schedules run in parallel on all cores, and the first
+ * schedule (in the enumeration order) breaking the invariant is reported.
+ *
+ * @param <S> the shared state the actors work on
+ */
+public class InterleavingExplorer<S> {
+
+  private final Supplier<S> initialState;
+  private final Map<String, List<Step<S>>> actors = new LinkedHashMap<>();
+
+  public InterleavingExplorer(Supplier<S> initialState) {
+    this.initialState = initialState;
+  }
+
+  @SafeVarargs
+  public final InterleavingExplorer<S> actor(String name, Step<S>... steps) {
+    // copied, so the list doesn't keep the caller's varargs array
+    List<Step<S>> actorSteps = new ArrayList<>(steps.length);
+    for (Step<S> step : steps) {
+      actorSteps.add(step);
+    }
+    if (actors.putIfAbsent(name, actorSteps) != null) {
+      throw new IllegalArgumentException("Actor " + name + " is already defined");
+    }
+    return this;
+  }
+
+  /**
+   * Enumerates the distinct interleavings of the actors' steps.
+   */
+  public List<Schedule> schedules() {
+    List<String> names = new ArrayList<>(actors.keySet());
+    List<List<Step<S>>> steps = new ArrayList<>(actors.values());
+    List<Schedule> schedules = new ArrayList<>();
+    int length = steps.stream().mapToInt(List::size).sum();
+    enumerate(names, steps, new int[steps.size()], new int[length], 0, schedules);
+    return schedules;
+  }
+
+  /**
+   * Runs every distinct interleaving and checks the invariant on the final state. An exception thrown by a step breaks
+   * the invariant too.
+   */
+  public Result explore(Predicate<S> invariant) {
+    List<Schedule> schedules = schedules();
+    AtomicInteger firstViolation = new AtomicInteger(Integer.MAX_VALUE);
+    AtomicInteger explored = new AtomicInteger();
+    String[] failures = new String[schedules.size()];
+    ExecutorService scheduleRunners = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    ExecutorService actorThreads = Executors.newCachedThreadPool();
+    try {
+      List<CompletableFuture<Void>> runs = new ArrayList<>();
+      for (int i = 0; i < schedules.size(); i++) {
+        int index = i;
+        runs.add(CompletableFuture.runAsync(() -> {
+          // a violation is already found earlier in the enumeration, no need to run this one
+          if (index > firstViolation.get()) {
+            return;
+          }
+          explored.incrementAndGet();
+          String failure = run(schedules.get(index), invariant, actorThreads);
+          if (failure != null) {
+            failures[index] = failure;
+            firstViolation.accumulateAndGet(index, Math::min);
+          }
+        }, scheduleRunners));
+      }
+      CompletableFuture.allOf(runs.toArray(new CompletableFuture<?>[0])).join();
+    } finally {
+      scheduleRunners.shutdownNow();
+      actorThreads.shutdownNow();
+    }
+    int violation = firstViolation.get();
+    return violation == Integer.MAX_VALUE
+        ? new Result(schedules.size(), explored.get(), null, null)
+        : new Result(schedules.size(), explored.get(), schedules.get(violation), failures[violation]);
+  }
+
+  private String run(Schedule schedule, Predicate<S> invariant, ExecutorService actorThreads) {
+    S state = initialState.get();
+    PhaseSync phaseSync = new PhaseSync();
+    List<CompletableFuture<Void>> actorRuns = new ArrayList<>();
+    int actor = 0;
+    for (List<Step<S>> steps : actors.values()) {
+      int actorIndex = actor++;
+      actorRuns.add(CompletableFuture.runAsync(() -> {
+        for (int step = 0; step < steps.size(); step++) {
+          Step<S> current = steps.get(step);
+          phaseSync.phase(schedule.phaseOf(actorIndex, step), () -> current.action.run(state));
+        }
+      }, actorThreads));
+    }
+    CompletableFuture.allOf(actorRuns.toArray(new CompletableFuture<?>[0])).join();
+    if (!phaseSync.noExceptions()) {
+      return phaseSync.exceptionDetails();
+    }
+    return invariant.test(state) ? null : "Invariant is broken, final state: " + state;
+  }
+
+  private void enumerate(List<String> names, List<List<Step<S>>> steps, int[] next, int[] order, int position,
+      List<Schedule> schedules) {
+    if (position == order.length) {
+      schedules.add(new Schedule(names, order.clone(), steps));
+      return;
+    }
+    for (int actor = 0; actor < steps.size(); actor++) {
+      if (next[actor] == steps.get(actor).size() || !isNormalForm(steps, next, order, position, actor)) {
+        continue;
+      }
+      order[position] = actor;
+      next[actor]++;
+      enumerate(names, steps, next, order, position + 1, schedules);
+      next[actor]--;
+    }
+  }
+
+  /**
+   * A schedule is skipped if the candidate step commutes with a run of previous steps that starts with a step of an actor
+   * going after the candidate's actor: the same interleaving with the candidate moved earlier is smaller and is explored
+   * instead.
+   */
+  private boolean isNormalForm(List<List<Step<S>>> steps, int[] next, int[] order, int position, int actor) {
+    Step<S> candidate = steps.get(actor).get(next[actor]);
+    int[] executed = next.clone();
+    for (int i = position - 1; i >= 0; i--) {
+      int previousActor = order[i];
+      Step<S> previous = steps.get(previousActor).get(--executed[previousActor]);
+      if (previousActor == actor || candidate.dependsOn(previous)) {
+        return true;
+      }
+      if (previousActor > actor) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @FunctionalInterface
+  public interface StepAction<S> {
+    void run(S state) throws Exception;
+  }
+
+  public static final class Step<S> {
+    private static final String ANY = null;
+
+    private final String variable;
+    private final boolean write;
+    private final StepAction<S> action;
+
+    private Step(String variable, boolean write, StepAction<S> action) {
+      this.variable = variable;
+      this.write = write;
+      this.action = action;
+    }
+
+    public static <S> Step<S> read(String variable, StepAction<S> action) {
+      return new Step<>(variable, false, action);
+    }
+
+    public static <S> Step<S> write(String variable, StepAction<S> action) {
+      return new Step<>(variable, true, action);
+    }
+
+    /**
+     * A step that may touch any shared variable, so it's never reordered with steps of other actors.
+     */
+    public static <S> Step<S> of(StepAction<S> action) {
+      return new Step<>(ANY, true, action);
+    }
+
+    private boolean dependsOn(Step<S> other) {
+      if (variable == ANY || other.variable == ANY) {
+        return true;
+      }
+      return variable.equals(other.variable) && (write || other.write);
+    }
+  }
+
+  /**
+   * An interleaving: the actor running each phase.
+   */
+  public static final class Schedule {
+    private final List<String> actors;
+    private final int[] order;
+    private final int[][] phases;
+
+    private Schedule(List<String> actors, int[] order, List<? extends List<?>> steps) {
+      this.actors = actors;
+      this.order = order;
+      this.phases = new int[actors.size()][];
+      int[] next = new int[actors.size()];
+      for (int actor = 0; actor < actors.size(); actor++) {
+        phases[actor] = new int[steps.get(actor).size()];
+      }
+      for (int phase = 0; phase < order.length; phase++) {
+        phases[order[phase]][next[order[phase]]++] = phase;
+      }
+    }
+
+    /**
+     * The {@link PhaseSync} phase number of the given step of the actor.
+     */
+    public int phaseOf(String actor, int step) {
+      return phaseOf(actors.indexOf(actor), step);
+    }
+
+    public List<String> actorsInOrder() {
+      return Collections.unmodifiableList(
+          Arrays.stream(order).mapToObj(actors::get).collect(Collectors.toList()));
+    }
+
+    private int phaseOf(int actor, int step) {
+      return phases[actor][step];
+    }
+
+    @Override
+    public String toString() {
+      int[] next = new int[actors.size()];
+      return Arrays.stream(order)
+          .mapToObj(actor -> actors.get(actor) + "#" + (++next[actor]))
+          .collect(Collectors.joining(" "));
+    }
+  }
+
+  public static final class Result {
+    private final int schedules;
+    private final int explored;
+    private final Schedule violation;
+    private final String failure;
+
+    private Result(int schedules, int explored, Schedule violation, String failure) {
+      this.schedules = schedules;
+      this.explored = explored;
+      this.violation = violation;
+      this.failure = failure;
+    }
+
+    public int schedules() {
+      return schedules;
+    }
+
+    public int explored() {
+      return explored;
+    }
+
+    public Optional<Schedule> violation() {
+      return Optional.ofNullable(violation);
+    }
+
+    public String failure() {
+      return failure;
+    }
+
+    @Override
+    public String toString() {
+      if (violation == null) {
+        return "No violations in " + schedules + " schedules";
+      }
+      return "Schedule " + violation + " breaks the invariant (explored " + explored + " of " + schedules + "):\n"
+          + failure;
+    }
+  }
+}
@@ -0,0 +1,258 @@
+package phases;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import atomics.PaddedAtomicLong;
+import phases.PhaseSync.FallibleFunction;
+
+/**
+ * Records the order in which actors access shared state during a stress run, so a rare failure can be replayed with
+ * {@link PhaseSync} instead of waiting for it to happen again.
+ * <p>
+ * The code under test is written against {@link Actor}: every access to shared state is a step naming the variable it
+ * touches. While recording, a step holds the monitor of its variable, takes a number from a global sequence, puts it
+ * into the actor's own ring buffer and runs the access. After a failing run {@link #schedule()} merges the buffers by
+ * the sequence numbers, and the actors of {@link Schedule#replay()} run the same code with every step in its own phase,
+ * in the recorded order.
+ * <p>
+ * The number is taken atomically with the access, so the accesses to each variable are replayed in exactly the order
+ * they happened. Accesses to different variables may be replayed in another order than the real one, but they don't
+ * affect each other, so every read sees the same write as in the recorded run. As in {@link PhaseSync}, a step must not
+ * wait for a step of another actor.
+ * <p>
+ * The price is that recording serializes the accesses to a variable: the monitor is contended exactly when actors race
+ * on the variable, and it orders their accesses with happens-before edges. Races between the steps, such as a lost
+ * update, still happen and are recorded, but a race that only shows as a stale read of a variable can't happen while
+ * recording, so such bugs have to be found by other means, e.g. with lincheck.
+ * <p>
+ * If an actor has made more steps than its buffer holds, only the steps after the oldest one left in every buffer are
+ * ordered and the earlier ones run as soon as they come, see {@link Schedule#isComplete()}.
+ */
+public class InterleavingRecorder {
+
+  private final int capacity;
+  private final PaddedAtomicLong sequence = new PaddedAtomicLong();
+  private final Map<String, RecordingActor> actors = new LinkedHashMap<>();
+  private final Map<String, Object> monitors = new ConcurrentHashMap<>();
+
+  /**
+   * @param capacityPerActor the number of the latest steps kept for each actor, rounded up to a power of two
+   */
+  public InterleavingRecorder(int capacityPerActor) {
+    if (capacityPerActor < 1) {
+      throw new IllegalArgumentException("Capacity should be positive but was " + capacityPerActor);
+    }
+    this.capacity = capacityPerActor == 1 ? 1 : Integer.highestOneBit(capacityPerActor - 1) << 1;
+  }
+
+  /**
+   * Returns the actor with the given name, registering it on the first call. An actor should be used by one thread at a
+   * time.
+   */
+  public synchronized Actor actor(String name) {
+    return actors.computeIfAbsent(name, RecordingActor::new);
+  }
+
+  /**
+   * Forgets the recorded steps, so the next run of a stress test is recorded from the start. Should be called when no
+   * actor is running.
+   */
+  public synchronized void reset() {
+    sequence.set(0);
+    for (RecordingActor actor : actors.values()) {
+      actor.steps = 0;
+    }
+  }
+
+  /**
+   * Merges the recorded steps into a schedule. Should be called when no actor is running.
+   */
+  public synchronized Schedule schedule() {
+    long cutoff = 0;
+    for (RecordingActor actor : actors.values()) {
+      if (actor.steps > capacity) {
+        cutoff = Math.max(cutoff, actor.sequences[(int) (actor.steps & (capacity - 1))]);
+      }
+    }
+    List<Event> events = new ArrayList<>();
+    Map<String, Long> firstSteps = new LinkedHashMap<>();
+    for (RecordingActor actor : actors.values()) {
+      long first = Math.max(0, actor.steps - capacity);
+      while (first < actor.steps && actor.sequences[(int) (first & (capacity - 1))] < cutoff) {
+        first++;
+      }
+      firstSteps.put(actor.name, first);
+      for (long step = first; step < actor.steps; step++) {
+        int index = (int) (step & (capacity - 1));
+        events.add(new Event(actor.sequences[index], actor.name, step, actor.variables[index]));
+      }
+    }
+    events.sort((a, b) -> Long.compare(a.sequence, b.sequence));
+    return new Schedule(events, firstSteps);
+  }
+
+  private Object monitorOf(String variable) {
+    Object monitor = monitors.get(variable);
+    return monitor != null ? monitor : monitors.computeIfAbsent(variable, ignored -> new Object());
+  }
+
+  /**
+   * An actor of the code under test. It runs every access to shared state as a step.
+   */
+  public interface Actor {
+    /**
+     * Runs an access to shared state.
+     *
+     * @param variable the state accessed, accesses to the same variable are serialized and recorded in their order
+     */
+    void step(String variable, FallibleFunction access) throws Exception;
+  }
+
+  private final class RecordingActor implements Actor {
+    private final String name;
+    private final long[] sequences = new long[capacity];
+    private final String[] variables = new String[capacity];
+    private long steps;
+
+    private RecordingActor(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public void step(String variable, FallibleFunction access) throws Exception {
+      int index = (int) (steps & (capacity - 1));
+      variables[index] = variable;
+      steps++;
+      // another actor can't access the variable between taking the number and the access
+      synchronized (monitorOf(variable)) {
+        sequences[index] = sequence.getAndIncrement();
+        access.run();
+      }
+    }
+  }
+
+  private static final class Event {
+    private final long sequence;
+    private final String actor;
+    private final long step;
+    private final String variable;
+
+    private Event(long sequence, String actor, long step, String variable) {
+      this.sequence = sequence;
+      this.actor = actor;
+      this.step = step;
+      this.variable = variable;
+    }
+  }
+
+  /**
+   * The recorded order of the steps: the i-th step in the order runs in the phase i of the replay.
+   */
+  public static final class Schedule {
+    private final List<Event> events;
+    private final Map<String, Long> firstSteps;
+    private final Map<String, Map<Long, Integer>> phases = new LinkedHashMap<>();
+
+    private Schedule(List<Event> events, Map<String, Long> firstSteps) {
+      this.events = events;
+      this.firstSteps = firstSteps;
+      for (String actor : firstSteps.keySet()) {
+        phases.put(actor, new LinkedHashMap<>());
+      }
+      for (int phase = 0; phase < events.size(); phase++) {
+        Event event = events.get(phase);
+        phases.get(event.actor).put(event.step, phase);
+      }
+    }
+
+    /**
+     * The {@link PhaseSync} phase of the given step (counted from zero) of the actor, or -1 if the step wasn't
+     * recorded.
+     */
+    public int phaseOf(String actor, long step) {
+      Map<Long, Integer> steps = phases.get(actor);
+      if (steps == null) {
+        return -1;
+      }
+      return steps.getOrDefault(step, -1);
+    }
+
+    /**
+     * Whether every step of every actor is in the schedule, that is no ring buffer has been overwritten.
+     */
+    public boolean isComplete() {
+      return firstSteps.values().stream().allMatch(first -> first == 0);
+    }
+
+    public int size() {
+      return events.size();
+    }
+
+    public List<String> actorsInOrder() {
+      List<String> actors = new ArrayList<>();
+      for (Event event : events) {
+        actors.add(event.actor);
+      }
+      return Collections.unmodifiableList(actors);
+    }
+
+    /**
+     * Starts a replay of the schedule. The actors of the replay should run the same code as the recorded ones.
+     */
+    public Replay replay() {
+      return new Replay(this);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder description = new StringBuilder();
+      for (Event event : events) {
+        if (description.length() > 0) {
+          description.append(' ');
+        }
+        description.append(event.actor).append('#').append(event.step + 1).append('(').append(event.variable)
+            .append(')');
+      }
+      return description.toString();
+    }
+  }
+
+  /**
+   * A replay of a schedule. A step of its actors waits for its phase, steps that weren't recorded run at once. An
+   * exception thrown by a step doesn't stop the actor, it's kept and reported by {@link #exceptionDetails()}, as in
+   * {@link PhaseSync}.
+   */
+  public static final class Replay {
+    private final Schedule schedule;
+    private final PhaseSync phaseSync = new PhaseSync();
+
+    private Replay(Schedule schedule) {
+      this.schedule = schedule;
+    }
+
+    public Actor actor(String name) {
+      long[] steps = new long[1];
+      return (variable, access) -> {
+        int phase = schedule.phaseOf(name, steps[0]++);
+        if (phase < 0) {
+          access.run();
+        } else {
+          phaseSync.phase(phase, access);
+        }
+      };
+    }
+
+    public boolean noExceptions() {
+      return phaseSync.noExceptions();
+    }
+
+    public String exceptionDetails() {
+      return phaseSync.exceptionDetails();
+    }
+  }
+}
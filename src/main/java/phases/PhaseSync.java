@@ -9,17 +9,37 @@ public class PhaseSync {
 
   private final Lock lock = new ReentrantLock();
   private final Condition phaseIsDone = lock.newCondition();
-  private Phases currentPhase = Phases.FIRST;
-  private final ExecutionExceptionsKeeper<Phases> executionExceptionsKeeper = new ExecutionExceptionsKeeper<>();
+  private int currentPhase = 0;
+  private final ExecutionExceptionsKeeper<Object> executionExceptionsKeeper = new ExecutionExceptionsKeeper<>();
 
   public void phase(Phases phase, FallibleFunction execution) {
-    phase(phase, execution, (e) -> executionExceptionsKeeper.handleUnexpectedException(phase, e));
+    namedPhase(phase, phase.ordinal(), execution);
+  }
+
+  /**
+   * Same as {@link #phase(Phases, FallibleFunction)} for schedules longer than {@link Phases}. Phases are numbered from
+   * zero, {@link Phases#FIRST} is the phase number 0.
+   */
+  public void phase(int phase, FallibleFunction execution) {
+    namedPhase(phaseName(phase), phase, execution);
   }
 
   public void phaseWithExpectedException(Phases phase, FallibleFunction execution, Class<? extends Exception> expectedException) {
+    namedPhaseWithExpectedException(phase, phase.ordinal(), execution, expectedException);
+  }
+
+  public void phaseWithExpectedException(int phase, FallibleFunction execution, Class<? extends Exception> expectedException) {
+    namedPhaseWithExpectedException(phaseName(phase), phase, execution, expectedException);
+  }
+
+  private void namedPhase(Object phase, int phaseNumber, FallibleFunction execution) {
+    phase(phaseNumber, execution, (e) -> executionExceptionsKeeper.handleUnexpectedException(phase, e));
+  }
+
+  private void namedPhaseWithExpectedException(Object phase, int phaseNumber, FallibleFunction execution, Class<? extends Exception> expectedException) {
     AtomicBoolean theExceptionIsHandled = new AtomicBoolean(false);
     phase(
-        phase,
+        phaseNumber,
         () -> {
           execution.run();
           if (!theExceptionIsHandled.get()) {
@@ -67,20 +87,18 @@ public class PhaseSync {
     }
   }
 
-  private void phase(Phases phase, FallibleFunction execution, Consumer<Exception> exceptionHandler) {
+  private void phase(int phase, FallibleFunction execution, Consumer<Exception> exceptionHandler) {
     lock.lock();
     try {
       while (currentPhase != phase) {
         if (!phaseIsDone.await(5, TimeUnit.SECONDS)) {
-          exceptionHandler.accept(new Exception("Timeout waiting for " + phase));
+          exceptionHandler.accept(new Exception("Timeout waiting for " + phaseName(phase)));
           return;
         }
       }
       executeAndHandleExceptions(execution, exceptionHandler);
 
-      if (currentPhase.hasNext()) {
-        currentPhase = currentPhase.next();
-      }
+      currentPhase++;
       phaseIsDone.signalAll();
     } catch (InterruptedException e) {
       throw new RuntimeException("Thread interrupted");
@@ -89,6 +107,10 @@ public class PhaseSync {
     }
   }
 
+  private static Object phaseName(int phase) {
+    return phase < Phases.values().length ? Phases.values()[phase] : phase;
+  }
+
   public enum Phases {
     FIRST,
     SECOND,
@@ -102,7 +124,7 @@ public class PhaseSync {
     TENTH;
 
     public boolean hasNext() {
-      return next() != null;
+      return ordinal() + 1 < values().length;
     }
 
     public Phases next() {
@@ -0,0 +1,299 @@
+package profiling;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * Finds contended locks without wrapping them: a background thread polls {@link ThreadMXBean} and records the threads
+ * that are {@code BLOCKED} on a monitor or waiting for a {@link java.util.concurrent.locks.Lock} owned by another
+ * thread (a thread waiting on a condition or sleeping has no owner to blame and isn't counted). Every sample adds the
+ * sampling interval to the blocked time of the lock, of the owner/waiter pair and of the waiter's stack.
+ * <p>
+ * The cost of a sample grows with the number of threads, so the sampler keeps it within the overhead budget (the share
+ * of one core spent on sampling) by stretching the interval, and shrinks it back when the threads are gone. Stacks are
+ * taken only for the threads found blocked.
+ */
+public class ContentionSampler implements Closeable {
+
+  private static final double DEFAULT_OVERHEAD_BUDGET = 0.01;
+  private static final int MAX_INTERVAL_MULTIPLIER = 100;
+  private static final int MAX_STACK_DEPTH = 64;
+
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  private final long intervalNanos;
+  private final long maxIntervalNanos;
+  private final double overheadBudget;
+  private final Thread sampler;
+  private final Map<String, Long> blockedByLock = new HashMap<>();
+  private final Map<Contention, Long> blockedByPair = new HashMap<>();
+  private final Map<String, Long> blockedByStack = new HashMap<>();
+  private volatile boolean running;
+  private volatile long currentIntervalNanos;
+  private long samples;
+  private long samplingNanos;
+
+  public ContentionSampler(Duration interval) {
+    this(interval, DEFAULT_OVERHEAD_BUDGET);
+  }
+
+  /**
+   * @param interval       the interval between samples when sampling is cheap enough
+   * @param overheadBudget the share of one core the sampling may take, e.g. 0.01 for 1%
+   */
+  public ContentionSampler(Duration interval, double overheadBudget) {
+    if (interval.isNegative() || interval.isZero()) {
+      throw new IllegalArgumentException("Interval should be positive but was " + interval);
+    }
+    if (overheadBudget <= 0 || overheadBudget > 1) {
+      throw new IllegalArgumentException("Overhead budget should be in (0, 1] but was " + overheadBudget);
+    }
+    this.intervalNanos = interval.toNanos();
+    this.maxIntervalNanos = intervalNanos * MAX_INTERVAL_MULTIPLIER;
+    this.overheadBudget = overheadBudget;
+    this.currentIntervalNanos = intervalNanos;
+    this.sampler = new Thread(this::run, "contention-sampler");
+    sampler.setDaemon(true);
+  }
+
+  public ContentionSampler start() {
+    running = true;
+    sampler.start();
+    return this;
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    LockSupport.unpark(sampler);
+    try {
+      sampler.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Takes one sample right away, in the calling thread.
+   */
+  public void sample() {
+    long begin = System.nanoTime();
+    long weight = currentIntervalNanos;
+    long self = Thread.currentThread().getId();
+    // the cheap pass without stacks finds the candidates, stacks are taken only for them
+    long[] blockedIds = Arrays.stream(threads.getThreadInfo(threads.getAllThreadIds(), 0))
+        .filter(info -> info != null && info.getThreadId() != self && isContended(info))
+        .mapToLong(ThreadInfo::getThreadId)
+        .toArray();
+    ThreadInfo[] blocked = blockedIds.length == 0
+        ? new ThreadInfo[0]
+        : threads.getThreadInfo(blockedIds, MAX_STACK_DEPTH);
+    synchronized (this) {
+      for (ThreadInfo info : blocked) {
+        // the thread may have got the lock between the passes
+        if (info != null && isContended(info)) {
+          record(info, weight);
+        }
+      }
+      samples++;
+      long cost = System.nanoTime() - begin;
+      samplingNanos += cost;
+      adjustInterval(cost);
+    }
+  }
+
+  public Duration currentInterval() {
+    return Duration.ofNanos(currentIntervalNanos);
+  }
+
+  public synchronized Report report() {
+    return new Report(samples, samplingNanos, blockedByLock, blockedByPair, blockedByStack);
+  }
+
+  public synchronized void reset() {
+    blockedByLock.clear();
+    blockedByPair.clear();
+    blockedByStack.clear();
+    samples = 0;
+    samplingNanos = 0;
+  }
+
+  private void run() {
+    while (running) {
+      long next = System.nanoTime() + currentIntervalNanos;
+      sample();
+      long delay;
+      while (running && (delay = next - System.nanoTime()) > 0) {
+        LockSupport.parkNanos(this, delay);
+      }
+    }
+  }
+
+  private static boolean isContended(ThreadInfo info) {
+    switch (info.getThreadState()) {
+      case BLOCKED:
+        return true;
+      case WAITING:
+      case TIMED_WAITING:
+        return info.getLockName() != null && info.getLockOwnerId() != -1;
+      default:
+        return false;
+    }
+  }
+
+  private void record(ThreadInfo info, long weight) {
+    String lock = info.getLockName();
+    String owner = info.getLockOwnerName() == null ? "unknown" : info.getLockOwnerName();
+    blockedByLock.merge(lock, weight, Long::sum);
+    blockedByPair.merge(new Contention(lock, owner, info.getThreadName()), weight, Long::sum);
+    blockedByStack.merge(foldedStack(info), weight, Long::sum);
+  }
+
+  private static String foldedStack(ThreadInfo info) {
+    StackTraceElement[] stack = info.getStackTrace();
+    StringBuilder folded = new StringBuilder(info.getThreadName());
+    // folded stacks start from the root frame
+    for (int i = stack.length - 1; i >= 0; i--) {
+      folded.append(';').append(stack[i].getClassName()).append('.').append(stack[i].getMethodName());
+    }
+    return folded.append(";[").append(info.getThreadState()).append(' ').append(info.getLockName()).append(']')
+        .toString();
+  }
+
+  private void adjustInterval(long cost) {
+    long affordable = (long) (cost / overheadBudget);
+    if (affordable > currentIntervalNanos) {
+      currentIntervalNanos = Math.min(maxIntervalNanos, affordable);
+    } else if (affordable < currentIntervalNanos / 2) {
+      currentIntervalNanos = Math.max(intervalNanos, currentIntervalNanos / 2);
+    }
+  }
+
+  /**
+   * A waiter blocked by an owner on a lock.
+   */
+  public static final class Contention {
+    private final String lock;
+    private final String owner;
+    private final String waiter;
+
+    private Contention(String lock, String owner, String waiter) {
+      this.lock = lock;
+      this.owner = owner;
+      this.waiter = waiter;
+    }
+
+    public String lock() {
+      return lock;
+    }
+
+    public String owner() {
+      return owner;
+    }
+
+    public String waiter() {
+      return waiter;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Contention)) {
+        return false;
+      }
+      Contention other = (Contention) o;
+      return lock.equals(other.lock) && owner.equals(other.owner) && waiter.equals(other.waiter);
+    }
+
+    @Override
+    public int hashCode() {
+      return (lock.hashCode() * 31 + owner.hashCode()) * 31 + waiter.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return owner + " -> " + waiter + " on " + lock;
+    }
+  }
+
+  /**
+   * The blocked time estimates collected so far, the most contended first.
+   */
+  public static final class Report {
+    private final long samples;
+    private final long samplingNanos;
+    private final Map<String, Duration> blockedByLock;
+    private final Map<Contention, Duration> blockedByPair;
+    private final Map<String, Long> blockedByStack;
+
+    private Report(long samples, long samplingNanos, Map<String, Long> blockedByLock,
+        Map<Contention, Long> blockedByPair, Map<String, Long> blockedByStack) {
+      this.samples = samples;
+      this.samplingNanos = samplingNanos;
+      this.blockedByLock = sortedDurations(blockedByLock);
+      this.blockedByPair = sortedDurations(blockedByPair);
+      this.blockedByStack = new LinkedHashMap<>(blockedByStack);
+    }
+
+    public long samples() {
+      return samples;
+    }
+
+    public Duration samplingTime() {
+      return Duration.ofNanos(samplingNanos);
+    }
+
+    public Map<String, Duration> blockedTimeByLock() {
+      return blockedByLock;
+    }
+
+    public Map<Contention, Duration> blockedTimeByOwnerAndWaiter() {
+      return blockedByPair;
+    }
+
+    /**
+     * Folded stacks of the blocked threads, one {@code thread;frame;...;[state lock] microseconds} line per stack,
+     * ready for {@code flamegraph.pl}.
+     */
+    public String foldedStacks() {
+      return blockedByStack.entrySet().stream()
+          .sorted(Map.Entry.comparingByKey())
+          .map(stack -> stack.getKey() + " " + stack.getValue() / 1000)
+          .collect(Collectors.joining("\n"));
+    }
+
+    private static <K> Map<K, Duration> sortedDurations(Map<K, Long> nanos) {
+      List<Map.Entry<K, Long>> entries = new ArrayList<>(nanos.entrySet());
+      entries.sort(Map.Entry.<K, Long>comparingByValue(Comparator.reverseOrder()));
+      Map<K, Duration> sorted = new LinkedHashMap<>();
+      for (Map.Entry<K, Long> entry : entries) {
+        sorted.put(entry.getKey(), Duration.ofNanos(entry.getValue()));
+      }
+      return sorted;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder report = new StringBuilder("Samples: ").append(samples).append(", sampling took ")
+          .append(samplingTime().toMillis()).append(" ms\n");
+      blockedByLock.forEach((lock, blocked) -> report.append(lock).append(": ").append(blocked.toMillis())
+          .append(" ms blocked\n"));
+      blockedByPair.forEach((pair, blocked) -> report.append("  ").append(pair).append(": ").append(blocked.toMillis())
+          .append(" ms\n"));
+      return report.toString();
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package queues;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Lets a thread block until a condition of a lock-free data structure holds, without a mutex around the check and the
+ * wait. A waiter takes a ticket with {@link #prepareWait()}, checks its condition again and then waits for the ticket.
+ * Any {@link #signalAll()} that happened after the ticket was taken wakes the waiter up, or makes it not wait at all,
+ * so the signal can't be lost the way it is with {@link java.util.concurrent.locks.Condition} when the waiter hasn't
+ * reached {@code await()} yet.
+ * <p>
+ * The state is one word: the epoch in the high half and the number of waiters in the low half. Signalling while nobody
+ * waits is a fence and a read of that word.
+ */
+public class EventCount {
+
+  private static final long WAITER = 1L;
+  private static final long EPOCH = 1L << 32;
+  private static final long WAITERS_MASK = EPOCH - 1;
+
+  private final AtomicLong state = new AtomicLong();
+  private final Object monitor = new Object();
+
+  /**
+   * Registers the calling thread as a waiter. It has to be followed by either {@link #await(long)} or
+   * {@link #cancelWait()}.
+   *
+   * @return the ticket to wait for
+   */
+  public long prepareWait() {
+    return epochOf(state.getAndAdd(WAITER));
+  }
+
+  public void cancelWait() {
+    state.getAndAdd(-WAITER);
+  }
+
+  /**
+   * Waits until somebody signals after the ticket was taken. Returns immediately if it has already happened.
+   */
+  public void await(long ticket) throws InterruptedException {
+    try {
+      synchronized (monitor) {
+        while (epochOf(state.get()) == ticket) {
+          monitor.wait();
+        }
+      }
+    } finally {
+      state.getAndAdd(-WAITER);
+    }
+  }
+
+  /**
+   * Blocks until the condition holds. The condition is checked without any lock, so it has to be thread-safe.
+   */
+  public void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+    while (!condition.getAsBoolean()) {
+      long ticket = prepareWait();
+      if (condition.getAsBoolean()) {
+        cancelWait();
+        return;
+      }
+      await(ticket);
+    }
+  }
+
+  /**
+   * Wakes up all the waiters. Has to be called after the change the waiters are waiting for.
+   */
+  public void signalAll() {
+    // the change made by the caller must be visible before we look for waiters,
+    // otherwise a waiter may check the condition too early and we may miss it
+    VarHandle.fullFence();
+    if ((state.get() & WAITERS_MASK) == 0) {
+      return;
+    }
+    state.getAndAdd(EPOCH);
+    synchronized (monitor) {
+      monitor.notifyAll();
+    }
+  }
+
+  public int waiters() {
+    return (int) (state.get() & WAITERS_MASK);
+  }
+
+  private static long epochOf(long state) {
+    return state >>> 32;
+  }
+}
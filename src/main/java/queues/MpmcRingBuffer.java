@@ -0,0 +1,178 @@
+package queues;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+import atomics.PaddedAtomicLong;
+
+/**
+ * A bounded multi-producer multi-consumer queue without locks. Every slot has a sequence number telling whether it's
+ * free for the producer of the current lap or filled for its consumer, so producers and consumers only compete on the
+ * head or the tail counter and never on a lock or a condition.
+ * <p>
+ * {@link #offer(Object)} and {@link #poll()} never block. {@link #put(Object)} and {@link #take()} retry with the
+ * {@link WaitStrategy} given to the constructor. {@link #drain(Consumer, int)} takes several elements with one CAS.
+ *
+ * @param <E> the type of the elements
+ */
+public class MpmcRingBuffer<E> {
+
+  private final int capacity;
+  private final int mask;
+  private final Object[] elements;
+  // sequence == position: the slot is free for the producer of that position
+  // sequence == position + 1: the slot is filled for the consumer of that position
+  private final AtomicLongArray sequences;
+  // producers and consumers hammer different counters, so they shouldn't share a cache line
+  private final PaddedAtomicLong head = new PaddedAtomicLong();
+  private final PaddedAtomicLong tail = new PaddedAtomicLong();
+  private final WaitStrategy waitStrategy;
+
+  public MpmcRingBuffer(int capacity) {
+    this(capacity, WaitStrategy.yielding());
+  }
+
+  /**
+   * @param capacity the capacity, a power of two
+   */
+  public MpmcRingBuffer(int capacity, WaitStrategy waitStrategy) {
+    if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("Capacity should be a power of two but was " + capacity);
+    }
+    this.capacity = capacity;
+    this.mask = capacity - 1;
+    this.elements = new Object[capacity];
+    this.sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, i);
+    }
+    this.waitStrategy = waitStrategy;
+  }
+
+  public boolean offer(E element) {
+    if (element == null) {
+      throw new NullPointerException("Null elements are not supported");
+    }
+    long position = tail.get();
+    while (true) {
+      int index = index(position);
+      long sequence = sequences.get(index);
+      if (sequence == position) {
+        if (tail.compareAndSet(position, position + 1)) {
+          elements[index] = element;
+          sequences.lazySet(index, position + 1);
+          waitStrategy.signalAll();
+          return true;
+        }
+      } else if (sequence < position) {
+        // the slot still keeps an element of the previous lap
+        if (position - head.get() >= capacity) {
+          return false;
+        }
+        // a consumer has taken the element but hasn't freed the slot yet
+        Thread.onSpinWait();
+      }
+      position = tail.get();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  public E poll() {
+    long position = head.get();
+    while (true) {
+      int index = index(position);
+      long sequence = sequences.get(index);
+      if (sequence == position + 1) {
+        if (head.compareAndSet(position, position + 1)) {
+          E element = (E) elements[index];
+          elements[index] = null;
+          sequences.lazySet(index, position + capacity);
+          waitStrategy.signalAll();
+          return element;
+        }
+      } else if (sequence < position + 1) {
+        if (tail.get() <= position) {
+          return null;
+        }
+        // a producer has taken the slot but hasn't filled it yet
+        Thread.onSpinWait();
+      }
+      position = head.get();
+    }
+  }
+
+  /**
+   * Takes up to {@code limit} elements that are ready at once and passes them to the consumer. If the consumer throws,
+   * the exception is propagated and the rest of the taken elements are dropped.
+   *
+   * @return the number of elements taken
+   */
+  @SuppressWarnings("unchecked")
+  public int drain(Consumer<? super E> consumer, int limit) {
+    while (true) {
+      long position = head.get();
+      int ready = 0;
+      while (ready < limit && sequences.get(index(position + ready)) == position + ready + 1) {
+        ready++;
+      }
+      if (ready < limit && tail.get() > position + ready) {
+        // the next slot is taken by a producer that hasn't filled it yet
+        Thread.onSpinWait();
+        continue;
+      }
+      if (ready == 0) {
+        return 0;
+      }
+      if (head.compareAndSet(position, position + ready)) {
+        // every slot is freed before the consumer runs, so a consumer throwing doesn't leave slots occupied
+        Object[] taken = new Object[ready];
+        for (int i = 0; i < ready; i++) {
+          int index = index(position + i);
+          taken[i] = elements[index];
+          elements[index] = null;
+          sequences.lazySet(index, position + i + capacity);
+        }
+        waitStrategy.signalAll();
+        for (Object element : taken) {
+          consumer.accept((E) element);
+        }
+        return ready;
+      }
+    }
+  }
+
+  public void put(E element) throws InterruptedException {
+    if (!offer(element)) {
+      waitStrategy.await(() -> offer(element));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  public E take() throws InterruptedException {
+    E element = poll();
+    if (element != null) {
+      return element;
+    }
+    Object[] taken = new Object[1];
+    waitStrategy.await(() -> (taken[0] = poll()) != null);
+    return (E) taken[0];
+  }
+
+  public int size() {
+    while (true) {
+      long before = head.get();
+      long currentTail = tail.get();
+      if (head.get() == before) {
+        return (int) Math.min(capacity, currentTail - before);
+      }
+    }
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  private int index(long position) {
+    return (int) position & mask;
+  }
+}
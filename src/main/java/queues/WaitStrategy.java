@@ -0,0 +1,97 @@
+package queues;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * What a thread does when it can't make progress, e.g. a consumer of an empty {@link MpmcRingBuffer}. Spinning gives the
+ * lowest latency but burns a core, yielding lets other threads run, parking saves CPU at the cost of wake-up latency.
+ * Blocking waits until the data structure signals a change, so it needs no timeouts but makes every change signal.
+ */
+@FunctionalInterface
+public interface WaitStrategy {
+
+  /**
+   * @param attempt the number of failed attempts in a row, starting with zero
+   */
+  void idle(int attempt);
+
+  /**
+   * Waits until the attempt succeeds.
+   */
+  default void await(BooleanSupplier attempt) throws InterruptedException {
+    for (int i = 0; !attempt.getAsBoolean(); i++) {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      idle(i);
+    }
+  }
+
+  /**
+   * Called by the data structure after every change that may let a waiting thread make progress.
+   */
+  default void signalAll() {
+  }
+
+  static WaitStrategy spinning() {
+    return attempt -> Thread.onSpinWait();
+  }
+
+  static WaitStrategy yielding() {
+    return attempt -> {
+      if (attempt < 100) {
+        Thread.onSpinWait();
+      } else {
+        Thread.yield();
+      }
+    };
+  }
+
+  /**
+   * Spins and yields for a while, then parks for exponentially growing periods up to the given one.
+   */
+  static WaitStrategy parking(long maxPark, TimeUnit unit) {
+    long maxParkNanos = unit.toNanos(maxPark);
+    return attempt -> {
+      if (attempt < 100) {
+        Thread.onSpinWait();
+      } else if (attempt < 200) {
+        Thread.yield();
+      } else {
+        LockSupport.parkNanos(Math.min(maxParkNanos, 1000L << Math.min(attempt - 200, 20)));
+      }
+    };
+  }
+
+  /**
+   * Spins and yields for a while, then blocks on an {@link EventCount} until the data structure changes.
+   */
+  static WaitStrategy blocking() {
+    EventCount changes = new EventCount();
+    WaitStrategy beforeBlocking = yielding();
+    return new WaitStrategy() {
+      @Override
+      public void idle(int attempt) {
+        beforeBlocking.idle(attempt);
+      }
+
+      @Override
+      public void await(BooleanSupplier attempt) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+          if (attempt.getAsBoolean()) {
+            return;
+          }
+          idle(i);
+        }
+        changes.awaitUntil(attempt);
+      }
+
+      @Override
+      public void signalAll() {
+        changes.signalAll();
+      }
+    };
+  }
+}
@@ -0,0 +1,161 @@
+package snapshot;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Publishes immutable versions of read-mostly state, RCU style. {@link #get()} is a single volatile load, so readers
+ * never wait for writers or for each other. Writers build a new version from the current one (copy-on-write) and
+ * publish it atomically, either one at a time ({@link Writers#SERIALIZED}) or optimistically, retrying the change on
+ * top of a concurrently published version ({@link Writers#MERGED}).
+ * <p>
+ * Readers holding a version that needs explicit cleanup register with {@link #acquire()}. The writer that replaced
+ * the version can then wait for them with {@link Retired#awaitReaders()} before releasing its resources.
+ *
+ * @param <T> the type of the immutable state
+ */
+public class SnapshotPublisher<T> {
+
+  public enum Writers {
+    SERIALIZED,
+    /**
+     * Writers don't wait for each other, so the change may be applied several times and must not have side effects.
+     */
+    MERGED
+  }
+
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final AtomicReference<Version<T>> current;
+  private final Writers writers;
+  private final Lock writeLock = new ReentrantLock();
+
+  public SnapshotPublisher(T initial) {
+    this(initial, Writers.MERGED);
+  }
+
+  public SnapshotPublisher(T initial, Writers writers) {
+    this.current = new AtomicReference<>(new Version<>(initial));
+    this.writers = writers;
+  }
+
+  public T get() {
+    return current.get().value;
+  }
+
+  /**
+   * Returns the current version and registers the caller as its reader until the snapshot is closed.
+   */
+  public Snapshot<T> acquire() {
+    while (true) {
+      Version<T> version = current.get();
+      version.readers.incrementAndGet();
+      // a writer that has replaced the version in the meantime may have already checked the readers
+      if (current.get() == version) {
+        return new Snapshot<>(version);
+      }
+      version.readers.decrementAndGet();
+    }
+  }
+
+  /**
+   * Publishes the version built by the change from the current one.
+   *
+   * @return the replaced version
+   */
+  public Retired<T> update(UnaryOperator<T> change) {
+    if (writers == Writers.SERIALIZED) {
+      writeLock.lock();
+      try {
+        Version<T> replaced = current.get();
+        current.set(new Version<>(change.apply(replaced.value)));
+        return new Retired<>(replaced);
+      } finally {
+        writeLock.unlock();
+      }
+    }
+    while (true) {
+      Version<T> replaced = current.get();
+      Version<T> next = new Version<>(change.apply(replaced.value));
+      if (current.compareAndSet(replaced, next)) {
+        return new Retired<>(replaced);
+      }
+    }
+  }
+
+  public Retired<T> publish(T value) {
+    return update(ignored -> value);
+  }
+
+  private static class Version<T> {
+    private final T value;
+    // exact, a LongAdder sum isn't a snapshot and may miss a reader while another one backs off on a different cell
+    private final AtomicLong readers = new AtomicLong();
+
+    private Version(T value) {
+      this.value = value;
+    }
+  }
+
+  public static final class Snapshot<T> implements AutoCloseable {
+    private final Version<T> version;
+    private boolean closed;
+
+    private Snapshot(Version<T> version) {
+      this.version = version;
+    }
+
+    public T get() {
+      return version.value;
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        version.readers.decrementAndGet();
+      }
+    }
+  }
+
+  public static final class Retired<T> {
+    private final Version<T> version;
+
+    private Retired(Version<T> version) {
+      this.version = version;
+    }
+
+    public T value() {
+      return version.value;
+    }
+
+    public boolean hasReaders() {
+      return version.readers.get() > 0;
+    }
+
+    /**
+     * Waits until every reader that has acquired this version closes its snapshot. New readers can't acquire it
+     * anymore, so once it returns the version can be cleaned up.
+     */
+    public T awaitReaders() throws InterruptedException {
+      long park = 1;
+      while (hasReaders()) {
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+        if (park < 64) {
+          Thread.onSpinWait();
+        } else {
+          LockSupport.parkNanos(Math.min(park, MAX_PARK_NANOS));
+        }
+        park *= 2;
+      }
+      return version.value;
+    }
+  }
+}
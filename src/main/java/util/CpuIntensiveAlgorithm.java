@@ -1,5 +1,9 @@
 package util;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
 /**
  * To test some concurrent operations sometimes a long-running function that keeps a thread busy for a while is needed.
  * We use some not very efficient algorithm for finding prime numbers to implement it and give a big enough number to occupy
@@ -7,6 +11,10 @@ package util;
  */
 public class CpuIntensiveAlgorithm {
 
+  private static final long WARM_UP_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+  private static final int CALIBRATION_RUNS = 7;
+  private static final int MAX_CALIBRATIONS = 5;
+
   public static void run100Ms() {
     // Value from util.CpuIntensiveAlgorithmTest.testThereIsANumberToRunFor100Ms
     findAllPrimesBefore(15121);
@@ -17,6 +25,24 @@ public class CpuIntensiveAlgorithm {
     findAllPrimesBefore(52021);
   }
 
+  /**
+   * Returns a task keeping the CPU busy for about the given time, e.g. a few microseconds of a critical section. The
+   * bound is calibrated on this machine after a warm-up long enough for the JIT to compile the loop, using the median
+   * of several runs so neither a preempted nor a lucky run spoils it. The calibration is repeated while a check of the
+   * result is more than a quarter off the target, which happens when the machine gets busier or the JIT recompiles
+   * the loop in the middle of it.
+   */
+  public static Runnable calibratedFor(Duration duration) {
+    long target = duration.toNanos();
+    warmUp();
+    long bound = calibrate(target);
+    for (int attempt = 0; attempt < MAX_CALIBRATIONS && isOff(medianRun(bound), target); attempt++) {
+      bound = calibrate(target);
+    }
+    long calibrated = bound;
+    return () -> findAllPrimesBefore(calibrated);
+  }
+
   static long getBoundThatIsBigEnoughToKeepCpuBusyFor(long milliseconds) {
     long nextPrime = 1L;
     long start = System.currentTimeMillis();
@@ -30,6 +56,45 @@ public class CpuIntensiveAlgorithm {
         "Could not find a prime number that is big enough to keep CPU busy for " + milliseconds + " milliseconds");
   }
 
+  private static void warmUp() {
+    long end = System.nanoTime() + WARM_UP_NANOS;
+    while (System.nanoTime() < end) {
+      findAllPrimesBefore(2000);
+    }
+  }
+
+  private static long calibrate(long target) {
+    long high = 2;
+    while (medianRun(high) < target) {
+      high *= 2;
+    }
+    long low = high / 2;
+    while (high - low > 1) {
+      long middle = (low + high) >>> 1;
+      if (medianRun(middle) < target) {
+        low = middle;
+      } else {
+        high = middle;
+      }
+    }
+    return high;
+  }
+
+  private static boolean isOff(long measured, long target) {
+    return Math.abs(measured - target) > target / 4;
+  }
+
+  private static long medianRun(long rightBound) {
+    long[] runs = new long[CALIBRATION_RUNS];
+    for (int i = 0; i < runs.length; i++) {
+      long begin = System.nanoTime();
+      findAllPrimesBefore(rightBound);
+      runs[i] = System.nanoTime() - begin;
+    }
+    Arrays.sort(runs);
+    return runs[runs.length / 2];
+  }
+
   private static void findAllPrimesBefore(long rightBound) {
     long nextPrime = 1L;
     while (nextPrime < rightBound) {
@@ -0,0 +1,98 @@
+package atomics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ContendedAtomicLongTest {
+
+  @Test
+  public void behavesLikeAtomicLong() {
+    ContendedAtomicLong counter = new ContendedAtomicLong(5);
+
+    assertThat(counter.incrementAndGet(), is(6L));
+    assertThat(counter.getAndAdd(4), is(6L));
+    assertThat(counter.getAndIncrement(), is(10L));
+    assertThat(counter.decrementAndGet(), is(10L));
+    assertThat(counter.updateAndGet(value -> value * 2), is(20L));
+    assertThat(counter.getAndUpdate(value -> value - 21), is(20L));
+    assertThat(counter.get(), is(-1L));
+  }
+
+  @Test
+  public void uncontendedUpdatesAreRetriedAtOnce() {
+    ContendedAtomicLong counter = new ContendedAtomicLong();
+
+    for (int i = 0; i < 100; i++) {
+      counter.incrementAndGet();
+    }
+
+    assertThat(counter.getAttempts(), is(100L));
+    assertThat(counter.getFailures(), is(0L));
+    assertThat(counter.getFailureRate(), is(0.0));
+    assertThat(counter.mode(), is(ContendedAtomicLong.Mode.RETRY));
+    assertThat(counter.getCombinedUpdates(), is(0L));
+  }
+
+  @Test
+  public void combinedAdditionsGetTheirOwnResults() throws InterruptedException {
+    // combining from the start
+    ContendedAtomicLong counter = new ContendedAtomicLong(0, 0, 0);
+    Set<Long> results = ConcurrentHashMap.newKeySet();
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      Thread thread = new Thread(() -> {
+        for (int j = 0; j < 10_000; j++) {
+          results.add(counter.incrementAndGet());
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(counter.mode(), is(ContendedAtomicLong.Mode.COMBINING));
+    assertThat(counter.get(), is(80_000L));
+    // every increment has seen a value of its own
+    assertThat(results.size(), is(80_000));
+    assertThat(counter.getCombinedUpdates(), greaterThan(0L));
+  }
+
+  @Test
+  public void concurrentUpdatesAreNotLost() throws InterruptedException {
+    ContendedAtomicLong counter = new ContendedAtomicLong(0, 0, 1);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      Thread thread = new Thread(() -> {
+        for (int j = 0; j < 10_000; j++) {
+          counter.getAndUpdate(value -> value + 1);
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(counter.mode(), is(ContendedAtomicLong.Mode.BACKOFF));
+    assertThat(counter.get(), is(40_000L));
+    assertThat(counter.getAttempts(), is(40_000L + counter.getFailures()));
+  }
+
+  @Test
+  public void thresholdsAreValidated() {
+    assertThrows(IllegalArgumentException.class, () -> new ContendedAtomicLong(0, 0.6, 0.5));
+    assertThrows(IllegalArgumentException.class, () -> new ContendedAtomicLong(0, -0.1, 0.5));
+  }
+}
@@ -0,0 +1,94 @@
+package atomics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The counter workload of {@code LostUpdateAtomicInteger} done right, on 1 to 64 threads: every thread increments one
+ * shared counter. A plain {@link AtomicLong} CAS loop ({@code getAndUpdate}) and its {@code incrementAndGet} are
+ * compared to {@link ContendedAtomicLong}, updated with a function and with an addition that can be combined. The
+ * failure rate and the mode the counter ended up in are printed too.
+ * <p>
+ * Usage: {@code ContendedCounterBenchmark [increments per thread]}. It's not a unit test, so it's not run by the build.
+ */
+public class ContendedCounterBenchmark {
+
+  interface Counter {
+    void increment();
+
+    default String stats() {
+      return "";
+    }
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    int increments = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+    System.out.printf("%-36s %8s %16s  %s%n", "counter", "threads", "increments/s", "failure rate, mode");
+    for (int threads = 1; threads <= 64; threads *= 2) {
+      run("AtomicLong getAndUpdate", threads, increments, ContendedCounterBenchmark::casLoop);
+      run("AtomicLong incrementAndGet", threads, increments, ContendedCounterBenchmark::atomicAdd);
+      run("ContendedAtomicLong getAndUpdate", threads, increments, () -> contended(false));
+      run("ContendedAtomicLong incrementAndGet", threads, increments, () -> contended(true));
+    }
+  }
+
+  private static void run(String name, int threads, int increments, Supplier<Counter> counters)
+      throws InterruptedException {
+    Counter counter = counters.get();
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> all = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      all.add(new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        for (int j = 0; j < increments; j++) {
+          counter.increment();
+        }
+      }));
+    }
+    all.forEach(Thread::start);
+    long begin = System.nanoTime();
+    start.countDown();
+    for (Thread thread : all) {
+      thread.join();
+    }
+    long elapsed = System.nanoTime() - begin;
+    System.out.printf("%-36s %8d %,16d  %s%n", name, threads, (long) threads * increments * 1_000_000_000L / elapsed,
+        counter.stats());
+  }
+
+  private static Counter casLoop() {
+    AtomicLong counter = new AtomicLong();
+    return () -> counter.getAndUpdate(value -> value + 1);
+  }
+
+  private static Counter atomicAdd() {
+    AtomicLong counter = new AtomicLong();
+    return counter::incrementAndGet;
+  }
+
+  private static Counter contended(boolean combinable) {
+    ContendedAtomicLong counter = new ContendedAtomicLong();
+    return new Counter() {
+      @Override
+      public void increment() {
+        if (combinable) {
+          counter.incrementAndGet();
+        } else {
+          counter.getAndUpdate(value -> value + 1);
+        }
+      }
+
+      @Override
+      public String stats() {
+        return String.format("%.2f, %s", counter.getFailureRate(), counter.mode());
+      }
+    };
+  }
+}
@@ -0,0 +1,87 @@
+package atomics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntFunction;
+
+/**
+ * Every thread increments a counter of its own, so any slowdown with more threads comes from counters sharing cache
+ * lines. Packed layouts ({@link AtomicLong}s allocated one after another and an {@link AtomicLongArray}) are compared
+ * to {@link PaddedAtomicLong} and {@link PaddedAtomicLongArray}.
+ * <p>
+ * Usage: {@code FalseSharingBenchmark [increments per thread]}. It's not a unit test, so it's not run by the build.
+ */
+public class FalseSharingBenchmark {
+
+  interface Counters {
+    void increment(int counter);
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    int increments = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+    System.out.printf("%-22s %8s %16s%n", "layout", "threads", "increments/s");
+    for (int threads = 1; threads <= Math.max(8, 2 * Runtime.getRuntime().availableProcessors()); threads *= 2) {
+      run("AtomicLong (packed)", threads, increments, FalseSharingBenchmark::atomicLongs);
+      run("AtomicLongArray", threads, increments, FalseSharingBenchmark::atomicLongArray);
+      run("PaddedAtomicLong", threads, increments, FalseSharingBenchmark::paddedAtomicLongs);
+      run("PaddedAtomicLongArray", threads, increments, FalseSharingBenchmark::paddedAtomicLongArray);
+    }
+  }
+
+  private static void run(String name, int threads, int increments, IntFunction<Counters> layout)
+      throws InterruptedException {
+    Counters counters = layout.apply(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> all = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      int counter = i;
+      all.add(new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        for (int j = 0; j < increments; j++) {
+          counters.increment(counter);
+        }
+      }));
+    }
+    all.forEach(Thread::start);
+    long begin = System.nanoTime();
+    start.countDown();
+    for (Thread thread : all) {
+      thread.join();
+    }
+    long elapsed = System.nanoTime() - begin;
+    System.out.printf("%-22s %8d %,16d%n", name, threads, (long) threads * increments * 1_000_000_000L / elapsed);
+  }
+
+  private static Counters atomicLongs(int threads) {
+    AtomicLong[] counters = new AtomicLong[threads];
+    for (int i = 0; i < threads; i++) {
+      counters[i] = new AtomicLong();
+    }
+    return counter -> counters[counter].incrementAndGet();
+  }
+
+  private static Counters atomicLongArray(int threads) {
+    AtomicLongArray counters = new AtomicLongArray(threads);
+    return counters::incrementAndGet;
+  }
+
+  private static Counters paddedAtomicLongs(int threads) {
+    PaddedAtomicLong[] counters = new PaddedAtomicLong[threads];
+    for (int i = 0; i < threads; i++) {
+      counters[i] = new PaddedAtomicLong();
+    }
+    return counter -> counters[counter].incrementAndGet();
+  }
+
+  private static Counters paddedAtomicLongArray(int threads) {
+    PaddedAtomicLongArray counters = new PaddedAtomicLongArray(threads);
+    return counters::incrementAndGet;
+  }
+}
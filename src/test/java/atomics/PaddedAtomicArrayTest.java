@@ -0,0 +1,61 @@
+package atomics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PaddedAtomicArrayTest {
+
+  @Test
+  public void elementsAreIndependent() {
+    PaddedAtomicLongArray longs = new PaddedAtomicLongArray(3);
+    PaddedAtomicIntegerArray ints = new PaddedAtomicIntegerArray(3);
+    PaddedAtomicReferenceArray<String> strings = new PaddedAtomicReferenceArray<>(3);
+
+    longs.set(1, 10);
+    ints.addAndGet(2, 20);
+    strings.set(0, "first");
+
+    assertThat(longs.get(0), is(0L));
+    assertThat(longs.get(1), is(10L));
+    assertThat(ints.get(1), is(0));
+    assertThat(ints.get(2), is(20));
+    assertThat(strings.compareAndSet(0, "first", "second"), is(true));
+    assertThat(strings.getAndSet(0, "third"), is("second"));
+    assertThat(strings.get(1) == null, is(true));
+  }
+
+  @Test
+  public void indexIsChecked() {
+    PaddedAtomicLongArray longs = new PaddedAtomicLongArray(2);
+
+    assertThrows(IndexOutOfBoundsException.class, () -> longs.get(2));
+    assertThrows(IndexOutOfBoundsException.class, () -> longs.set(-1, 1));
+  }
+
+  @Test
+  public void concurrentIncrementsAreNotLost() throws InterruptedException {
+    PaddedAtomicLongArray counters = new PaddedAtomicLongArray(2);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      int counter = i % 2;
+      Thread thread = new Thread(() -> {
+        for (int j = 0; j < 10_000; j++) {
+          counters.incrementAndGet(counter);
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertThat(counters.get(0), is(20_000L));
+    assertThat(counters.get(1), is(20_000L));
+  }
+}
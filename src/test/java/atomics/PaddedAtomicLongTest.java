@@ -0,0 +1,48 @@
+package atomics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+class PaddedAtomicLongTest {
+
+  @Test
+  public void behavesLikeAtomicLong() {
+    PaddedAtomicLong counter = new PaddedAtomicLong(5);
+
+    assertThat(counter.incrementAndGet(), is(6L));
+    assertThat(counter.getAndAdd(4), is(6L));
+    assertThat(counter.compareAndSet(9, 0), is(false));
+    assertThat(counter.compareAndSet(10, 0), is(true));
+    assertThat(counter.updateAndGet(value -> value - 3), is(-3L));
+    assertThat(counter.getAndSet(7), is(-3L));
+    counter.lazySet(8);
+    assertThat(counter.get(), is(8L));
+  }
+
+  @Test
+  public void concurrentIncrementsAreNotLost() throws InterruptedException {
+    PaddedAtomicLong counter = new PaddedAtomicLong();
+    PaddedAtomicInteger intCounter = new PaddedAtomicInteger();
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      Thread thread = new Thread(() -> {
+        for (int j = 0; j < 10_000; j++) {
+          counter.incrementAndGet();
+          intCounter.updateAndGet(value -> value + 1);
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertThat(counter.get(), is(40_000L));
+    assertThat(intCounter.get(), is(40_000));
+  }
+}
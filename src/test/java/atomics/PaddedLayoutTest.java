@@ -0,0 +1,95 @@
+package atomics;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Checks the declared padding only: the value is declared alone in its class, with at least 124 bytes of fields
+ * declared by the superclasses (128 with the rest of the object header) and at least 128 bytes declared by the
+ * subclasses. The offsets the JVM actually gives the fields aren't checked, that needs Unsafe or JOL; the padding
+ * relies on HotSpot laying out the fields of a superclass before the fields of a subclass.
+ */
+class PaddedLayoutTest {
+
+  @Test
+  public void longValueIsPadded() {
+    assertPadded(PaddedAtomicLong.class);
+  }
+
+  @Test
+  public void intValueIsPadded() {
+    assertPadded(PaddedAtomicInteger.class);
+  }
+
+  @Test
+  public void referenceIsPadded() {
+    assertPadded(PaddedAtomicReference.class);
+  }
+
+  private static void assertPadded(Class<?> type) {
+    Class<?> valueClass = type;
+    while (!declaresValue(valueClass)) {
+      valueClass = valueClass.getSuperclass();
+    }
+    assertThat(instanceFields(valueClass), is(1));
+
+    int before = 0;
+    for (Class<?> current = valueClass.getSuperclass(); current != Object.class; current = current.getSuperclass()) {
+      before += paddingBytes(current);
+    }
+    int after = 0;
+    for (Class<?> current = type; current != valueClass; current = current.getSuperclass()) {
+      after += paddingBytes(current);
+    }
+    assertThat(before, greaterThanOrEqualTo(124));
+    assertThat(after, greaterThanOrEqualTo(128));
+  }
+
+  private static boolean declaresValue(Class<?> type) {
+    for (Field field : type.getDeclaredFields()) {
+      if (field.getName().equals("value") && !Modifier.isStatic(field.getModifiers())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int instanceFields(Class<?> type) {
+    int fields = 0;
+    for (Field field : type.getDeclaredFields()) {
+      if (!Modifier.isStatic(field.getModifiers())) {
+        fields++;
+      }
+    }
+    return fields;
+  }
+
+  private static int paddingBytes(Class<?> type) {
+    int bytes = 0;
+    for (Field field : type.getDeclaredFields()) {
+      if (Modifier.isStatic(field.getModifiers())) {
+        continue;
+      }
+      Class<?> fieldType = field.getType();
+      if (fieldType == long.class || fieldType == double.class) {
+        bytes += 8;
+      } else if (fieldType == int.class || fieldType == float.class) {
+        bytes += 4;
+      } else if (fieldType == short.class || fieldType == char.class) {
+        bytes += 2;
+      } else if (fieldType == byte.class || fieldType == boolean.class) {
+        bytes += 1;
+      } else {
+        // a reference is 4 bytes with compressed pointers
+        bytes += 4;
+      }
+    }
+    return bytes;
+  }
+}
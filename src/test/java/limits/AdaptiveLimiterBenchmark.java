@@ -0,0 +1,68 @@
+package limits;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import limits.AdaptiveLimiter.Permit;
+import load.OpenLoopHarness;
+import util.CpuIntensiveAlgorithm;
+
+/**
+ * A service running calibrated CPU work under a lock is driven by {@link OpenLoopHarness} below and above its
+ * capacity, with a worker pool much bigger than the one call the lock lets through. Without a limiter every extra
+ * caller waits for the lock and the latency grows for as long as the overload lasts; with {@link AdaptiveLimiter} the
+ * extra calls are rejected and the p99 of the served ones stays close to the one below capacity.
+ * <p>
+ * Usage: {@code AdaptiveLimiterBenchmark [critical section us] [workers] [seconds per run]}. It's not a unit test, so
+ * it's not run by the build.
+ */
+public class AdaptiveLimiterBenchmark {
+
+  public static void main(String[] args) throws InterruptedException {
+    long criticalSectionMicros = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+    int workers = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+    Duration perRun = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 3);
+    Runnable work = CpuIntensiveAlgorithm.calibratedFor(Duration.ofNanos(criticalSectionMicros * 1000));
+    double capacity = 1_000_000.0 / criticalSectionMicros;
+    Duration threshold = Duration.ofNanos(criticalSectionMicros * 5000);
+    for (double load : new double[] {0.5, 0.9, 1.5}) {
+      double rate = load * capacity;
+      System.out.printf("load %.0f%% of capacity%n", load * 100);
+      run("no limit", rate, workers, perRun, work, null);
+      run("AIMD", rate, workers, perRun, work, new AdaptiveLimiter(LimitAlgorithm.aimd(1, workers, threshold, 0.9), 1));
+      run("gradient", rate, workers, perRun, work, new AdaptiveLimiter(LimitAlgorithm.gradient(1, workers), 1));
+      System.out.println();
+    }
+  }
+
+  private static void run(String name, double rate, int workers, Duration perRun, Runnable work,
+      AdaptiveLimiter limiter) throws InterruptedException {
+    ReentrantLock lock = new ReentrantLock();
+    Runnable locked = () -> {
+      lock.lock();
+      try {
+        work.run();
+      } finally {
+        lock.unlock();
+      }
+    };
+    Runnable service = limiter == null ? locked : () -> {
+      Optional<Permit> permit = limiter.tryAcquire();
+      if (permit.isEmpty()) {
+        throw new RejectedExecutionException();
+      }
+      try {
+        locked.run();
+      } finally {
+        permit.get().release();
+      }
+    };
+    OpenLoopHarness.Result result = new OpenLoopHarness(service, workers).run(rate, perRun);
+    System.out.printf("%-10s %s%n", name, result);
+    if (limiter != null) {
+      System.out.printf("%-10s %s%n", "", limiter);
+    }
+  }
+}
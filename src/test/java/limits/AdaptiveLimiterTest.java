@@ -0,0 +1,155 @@
+package limits;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import limits.AdaptiveLimiter.Permit;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static util.CpuIntensiveAlgorithm.run100Ms;
+
+class AdaptiveLimiterTest {
+
+  private static final LimitAlgorithm FIXED = (limit, rttNanos, inFlight, dropped) -> limit;
+
+  @Test
+  public void callsAboveTheLimitAreRejected() {
+    AdaptiveLimiter limiter = new AdaptiveLimiter(FIXED, 2);
+
+    Optional<Permit> first = limiter.tryAcquire();
+    Optional<Permit> second = limiter.tryAcquire();
+    Optional<Permit> third = limiter.tryAcquire();
+
+    assertThat(first.isPresent(), is(true));
+    assertThat(second.isPresent(), is(true));
+    assertThat(third.isPresent(), is(false));
+    assertThat(limiter.getInFlight(), is(2));
+    assertThat(limiter.getRejected(), is(1L));
+
+    first.get().release();
+    // a permit is released once
+    first.get().release();
+    assertThat(limiter.getInFlight(), is(1));
+    assertThat(limiter.tryAcquire().isPresent(), is(true));
+    assertThat(limiter.getAccepted(), is(3L));
+  }
+
+  @Test
+  public void queuedCallerGetsTheReleasedPermit() throws InterruptedException {
+    AdaptiveLimiter limiter = new AdaptiveLimiter(FIXED, 1, 1);
+    Permit held = limiter.tryAcquire().get();
+    AtomicBoolean acquired = new AtomicBoolean(false);
+    Thread waiter = new Thread(() -> {
+      try {
+        acquired.set(limiter.tryAcquire(5, TimeUnit.SECONDS).isPresent());
+      } catch (InterruptedException e) {
+        //ignore in this test
+      }
+    });
+    waiter.start();
+    run100Ms();
+
+    assertThat(limiter.getQueued(), is(1));
+    // the queue is full
+    assertThat(limiter.tryAcquire(1, TimeUnit.SECONDS).isPresent(), is(false));
+
+    held.release();
+    waiter.join(1000);
+    assertThat(acquired.get(), is(true));
+    assertThat(limiter.getQueued(), is(0));
+  }
+
+  @Test
+  public void everyQueuedCallerFittingTheGrownLimitIsWoken() throws InterruptedException {
+    AdaptiveLimiter limiter = new AdaptiveLimiter((limit, rttNanos, inFlight, dropped) -> 3, 1, 2);
+    Permit held = limiter.tryAcquire().get();
+    AtomicInteger acquired = new AtomicInteger();
+    List<Thread> waiters = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      Thread waiter = new Thread(() -> {
+        try {
+          if (limiter.tryAcquire(5, TimeUnit.SECONDS).isPresent()) {
+            acquired.incrementAndGet();
+          }
+        } catch (InterruptedException e) {
+          //ignore in this test
+        }
+      });
+      waiters.add(waiter);
+      waiter.start();
+    }
+    while (limiter.getQueued() < 2) {
+      Thread.onSpinWait();
+    }
+    run100Ms();
+
+    // one release raises the limit to 3, which makes room for both
+    held.release();
+    for (Thread waiter : waiters) {
+      waiter.join(1000);
+    }
+    assertThat(acquired.get(), is(2));
+  }
+
+  @Test
+  public void queuedCallerGivesUpAfterTimeout() throws InterruptedException {
+    AdaptiveLimiter limiter = new AdaptiveLimiter(FIXED, 1, 1);
+    limiter.tryAcquire();
+
+    assertThat(limiter.tryAcquire(50, TimeUnit.MILLISECONDS).isPresent(), is(false));
+    assertThat(limiter.getQueued(), is(0));
+    assertThat(limiter.getRejected(), is(1L));
+  }
+
+  @Test
+  public void limitFollowsTheAlgorithm() {
+    AdaptiveLimiter limiter = new AdaptiveLimiter(LimitAlgorithm.aimd(1, 10, Duration.ofSeconds(1), 0.5), 4);
+
+    limiter.tryAcquire().get().release();
+    assertThat(limiter.getLimit(), is(4));
+
+    Permit first = limiter.tryAcquire().get();
+    Permit second = limiter.tryAcquire().get();
+    second.release();
+    assertThat(limiter.getLimit(), is(5));
+
+    first.drop();
+    assertThat(limiter.getLimit(), is(2));
+    assertThat(limiter.getDropped(), is(1L));
+  }
+
+  @Test
+  public void concurrentCompletionsDontLoseLimitUpdates() throws InterruptedException {
+    // yields between reading the limit and setting the new one, so completions interleave
+    AtomicInteger calls = new AtomicInteger();
+    AdaptiveLimiter limiter = new AdaptiveLimiter((limit, rttNanos, inFlight, dropped) -> {
+      calls.incrementAndGet();
+      Thread.yield();
+      return limit + 1;
+    }, 4);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      Thread thread = new Thread(() -> {
+        for (int j = 0; j < 2000; j++) {
+          limiter.tryAcquire().get().release();
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(limiter.getLimit(), is(4 + 8000));
+    // every completion is seen by the algorithm once
+    assertThat(calls.get(), is(8000));
+  }
+}
@@ -0,0 +1,49 @@
+package limits;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+
+class LimitAlgorithmTest {
+
+  private static final long MS = Duration.ofMillis(1).toNanos();
+
+  @Test
+  public void aimdGrowsByOneAndBacksOffByRatio() {
+    LimitAlgorithm aimd = LimitAlgorithm.aimd(1, 100, Duration.ofMillis(10), 0.5);
+
+    assertThat(aimd.update(10, MS, 10, false), is(11));
+    // the limit isn't used, so it's kept
+    assertThat(aimd.update(10, MS, 2, false), is(10));
+    assertThat(aimd.update(10, 20 * MS, 10, false), is(5));
+    assertThat(aimd.update(10, MS, 10, true), is(5));
+    assertThat(aimd.update(1, 20 * MS, 1, false), is(1));
+    assertThat(aimd.update(100, MS, 100, false), is(100));
+  }
+
+  @Test
+  public void gradientGrowsWhileLatencyIsLow() {
+    LimitAlgorithm gradient = LimitAlgorithm.gradient(1, 100);
+    int limit = 10;
+    for (int i = 0; i < 50; i++) {
+      limit = gradient.update(limit, MS, limit, false);
+    }
+    assertThat(limit, is(greaterThan(20)));
+  }
+
+  @Test
+  public void gradientShrinksWhenLatencyGrows() {
+    LimitAlgorithm gradient = LimitAlgorithm.gradient(1, 100);
+    int limit = 50;
+    gradient.update(limit, MS, limit, false);
+    for (int i = 0; i < 50; i++) {
+      limit = gradient.update(limit, 10 * MS, limit, false);
+    }
+    assertThat(limit, is(lessThan(10)));
+  }
+}
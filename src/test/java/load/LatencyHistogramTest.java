@@ -0,0 +1,72 @@
+package load;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LatencyHistogramTest {
+
+  @Test
+  public void smallValuesAreExact() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i);
+    }
+
+    assertThat(histogram.count(), is(100L));
+    assertThat(histogram.min(), is(1L));
+    assertThat(histogram.max(), is(100L));
+    assertThat(histogram.mean(), is(50.5));
+    assertThat(histogram.valueAtPercentile(50), is(50L));
+    assertThat(histogram.valueAtPercentile(99), is(99L));
+    assertThat(histogram.valueAtPercentile(100), is(100L));
+  }
+
+  @Test
+  public void largeValuesKeepSignificantDigits() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long i = 1; i <= 10_000; i++) {
+      histogram.record(i * 1000);
+    }
+
+    // 2 significant digits: within 1% of the exact value
+    assertThat(histogram.valueAtPercentile(50),
+        is(both(greaterThanOrEqualTo(5_000_000L)).and(lessThanOrEqualTo(5_050_000L))));
+    assertThat(histogram.valueAtPercentile(99.9),
+        is(both(greaterThanOrEqualTo(9_990_000L)).and(lessThanOrEqualTo(10_000_000L))));
+  }
+
+  @Test
+  public void valuesAboveTheRangeAreClamped() {
+    LatencyHistogram histogram = new LatencyHistogram(1000, 2);
+    histogram.record(5000);
+
+    assertThat(histogram.max(), is(1000L));
+    assertThat(histogram.valueAtPercentile(100), is(1000L));
+    assertThrows(IllegalArgumentException.class, () -> histogram.record(-1));
+  }
+
+  @Test
+  public void histogramsAreAdded() {
+    LatencyHistogram first = new LatencyHistogram();
+    LatencyHistogram second = new LatencyHistogram();
+    first.record(10);
+    second.record(20);
+    second.record(30);
+
+    first.add(second);
+
+    assertThat(first.count(), is(3L));
+    assertThat(first.min(), is(10L));
+    assertThat(first.max(), is(30L));
+    assertThat(first.valueAtPercentile(50), is(20L));
+    first.reset();
+    assertThat(first.count(), is(0L));
+    assertThat(first.valueAtPercentile(50), is(0L));
+  }
+}
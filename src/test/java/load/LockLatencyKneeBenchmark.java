@@ -0,0 +1,59 @@
+package load;
+
+import java.time.Duration;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import util.CpuIntensiveAlgorithm;
+
+/**
+ * Finds the latency knee of a service whose every request runs a calibrated critical section under a lock. The lock
+ * caps the throughput at one request per critical section whatever the number of workers, so the knee shows how close
+ * to that limit each lock strategy gets before requests start to queue.
+ * <p>
+ * Usage: {@code LockLatencyKneeBenchmark [critical section us] [workers] [seconds per rate]}. It's not a unit test, so
+ * it's not run by the build.
+ */
+public class LockLatencyKneeBenchmark {
+
+  public static void main(String[] args) throws InterruptedException {
+    long criticalSectionMicros = args.length > 0 ? Long.parseLong(args[0]) : 20;
+    int workers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+    Duration perRate = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 2);
+    Runnable work = CpuIntensiveAlgorithm.calibratedFor(Duration.ofNanos(criticalSectionMicros * 1000));
+    double capacity = 1_000_000.0 / criticalSectionMicros;
+    double[] rates = new double[] {0.1, 0.25, 0.5, 0.7, 0.8, 0.9, 0.95, 1.1};
+    for (int i = 0; i < rates.length; i++) {
+      rates[i] *= capacity;
+    }
+    Object monitor = new Object();
+    sweep("synchronized", () -> {
+      synchronized (monitor) {
+        work.run();
+      }
+    }, workers, rates, perRate);
+    sweep("ReentrantLock", locked(new ReentrantLock(), work), workers, rates, perRate);
+    sweep("fair ReentrantLock", locked(new ReentrantLock(true), work), workers, rates, perRate);
+  }
+
+  private static void sweep(String name, Runnable service, int workers, double[] rates, Duration perRate)
+      throws InterruptedException {
+    System.out.println(name);
+    OpenLoopHarness harness = new OpenLoopHarness(service, workers);
+    // the lowest rate is the baseline of the knee, so it shouldn't be measured with a cold JIT
+    harness.run(rates[0], perRate);
+    System.out.println(harness.sweep(rates, perRate));
+    System.out.println();
+  }
+
+  private static Runnable locked(Lock lock, Runnable work) {
+    return () -> {
+      lock.lock();
+      try {
+        work.run();
+      } finally {
+        lock.unlock();
+      }
+    };
+  }
+}
@@ -0,0 +1,94 @@
+package load;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import load.OpenLoopHarness.Result;
+import load.OpenLoopHarness.Sweep;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+
+class OpenLoopHarnessTest {
+
+  @Test
+  public void issuesRequestsAtTheGivenRate() throws InterruptedException {
+    OpenLoopHarness harness = new OpenLoopHarness(() -> { }, 1);
+
+    Result result = harness.run(1000, Duration.ofMillis(200));
+
+    assertThat(result.requests(), is(200L));
+    assertThat(result.latency().count(), is(200L));
+    assertThat(result.unfinished(), is(0L));
+  }
+
+  @Test
+  public void latencyIncludesQueueingBehindAStalledService() throws InterruptedException {
+    // a closed-loop test would see one slow request, the open loop sees everything that arrived during the stall
+    long[] calls = new long[1];
+    OpenLoopHarness harness = new OpenLoopHarness(() -> {
+      if (calls[0]++ == 0) {
+        sleep(100);
+      }
+    }, 1);
+
+    Result result = harness.run(1000, Duration.ofMillis(300));
+
+    // the 100 requests due during the stall make a third of all the requests
+    assertThat(result.latency().valueAtPercentile(80), is(greaterThan(TimeUnit.MILLISECONDS.toNanos(10))));
+    assertThat(result.latency().max(), is(greaterThan(TimeUnit.MILLISECONDS.toNanos(90))));
+  }
+
+  @Test
+  public void overloadedServiceIsGivenUp() throws InterruptedException {
+    OpenLoopHarness harness = new OpenLoopHarness(() -> sleep(10), 1);
+
+    Result result = harness.run(1000, Duration.ofMillis(100));
+
+    assertThat(result.unfinished(), is(greaterThan(0L)));
+    assertThat(result.achievedRequestsPerSecond(), is(lessThan(1000.0)));
+  }
+
+  @Test
+  public void rejectedRequestsAreCountedApart() throws InterruptedException {
+    long[] calls = new long[1];
+    OpenLoopHarness harness = new OpenLoopHarness(() -> {
+      if (calls[0]++ % 2 == 0) {
+        throw new RejectedExecutionException();
+      }
+    }, 1);
+
+    Result result = harness.run(1000, Duration.ofMillis(100));
+
+    assertThat(result.rejected(), is(50L));
+    assertThat(result.latency().count(), is(50L));
+  }
+
+  @Test
+  public void kneeIsTheFirstRateWithTakenOffTail() {
+    Sweep sweep = new Sweep(Arrays.asList(result(100, 1000), result(200, 1500), result(400, 20_000),
+        result(800, 500_000)));
+
+    assertThat(sweep.knee().get().requestsPerSecond(), is(400.0));
+    assertThat(sweep.knee(99, 100).get().requestsPerSecond(), is(800.0));
+  }
+
+  private static Result result(double rate, long latency) {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(latency);
+    return new Result(rate, 1, 0, 0, 1, histogram);
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
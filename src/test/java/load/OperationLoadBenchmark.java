@@ -0,0 +1,30 @@
+package load;
+
+import java.time.Duration;
+
+import locks.DirtyReadFixTest;
+import locks.LostUpdateAtomicInteger;
+
+/**
+ * Performance profiles of the data structures verified by lincheck tests, made from their {@code @Operation} methods:
+ * the broken atomic counter of {@link LostUpdateAtomicInteger} and the read-write locked pair of
+ * {@link DirtyReadFixTest} with a read-mostly mix.
+ * <p>
+ * Usage: {@code OperationLoadBenchmark [max threads] [seconds per run]}. It's not a unit test, so it's not run by the
+ * build.
+ */
+public class OperationLoadBenchmark {
+
+  public static void main(String[] args) throws InterruptedException {
+    int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : 2 * Runtime.getRuntime().availableProcessors();
+    Duration perRun = Duration.ofSeconds(args.length > 1 ? Long.parseLong(args[1]) : 2);
+    System.out.println("LostUpdateAtomicInteger");
+    System.out.println(new OperationLoadRunner(LostUpdateAtomicInteger.class).scale(maxThreads, perRun));
+    System.out.println("DirtyReadFixTest, 90% reads");
+    System.out.println(new OperationLoadRunner(DirtyReadFixTest.class)
+        .weight("getSting", 9)
+        .weight("getNumber", 9)
+        .weight("increment", 2)
+        .scale(maxThreads, perRun));
+  }
+}
@@ -0,0 +1,160 @@
+package load;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import load.OperationLoadRunner.Result;
+import load.OperationLoadRunner.Scaling;
+import org.jetbrains.kotlinx.lincheck.annotations.Operation;
+import org.jetbrains.kotlinx.lincheck.annotations.Param;
+import org.jetbrains.kotlinx.lincheck.paramgen.IntGen;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OperationLoadRunnerTest {
+
+  public static class Counter {
+    private final AtomicLong count = new AtomicLong();
+
+    @Operation
+    public long increment() {
+      return count.incrementAndGet();
+    }
+
+    @Operation
+    public long get() {
+      return count.get();
+    }
+
+    @Operation
+    public void fail() {
+      throw new IllegalStateException("always fails");
+    }
+
+    public void notAnOperation() {
+    }
+  }
+
+  @Param(name = "small", gen = IntGen.class, conf = "5:7")
+  public static class WithParameters {
+    static final Set<Object> smallValues = ConcurrentHashMap.newKeySet();
+    static final Set<Object> longValues = ConcurrentHashMap.newKeySet();
+    static final Set<Object> flags = ConcurrentHashMap.newKeySet();
+
+    @Operation
+    public void small(@Param(name = "small") int value) {
+      smallValues.add(value);
+    }
+
+    @Operation
+    public void byDefault(Long value) {
+      longValues.add(value);
+    }
+
+    @Operation
+    public void flag(boolean value) {
+      flags.add(value);
+    }
+  }
+
+  public static class WithUnsupportedParameter {
+    @Operation
+    public void add(String value) {
+    }
+  }
+
+  public static class WithOtherAnnotation {
+    // shadows the lincheck annotation of the same simple name
+    @Retention(RetentionPolicy.RUNTIME)
+    private @interface Operation {
+    }
+
+    @Operation
+    public void other() {
+    }
+  }
+
+  @Test
+  public void operationsAreFoundByAnnotation() {
+    OperationLoadRunner runner = new OperationLoadRunner(Counter.class);
+
+    assertThat(runner.operations(), is(List.of("fail", "get", "increment")));
+  }
+
+  @Test
+  public void operationsAreCalledInTheWeightedMix() throws InterruptedException {
+    OperationLoadRunner runner = new OperationLoadRunner(Counter.class)
+        .weight("increment", 3)
+        .weight("get", 1)
+        .weight("fail", 0);
+
+    Result result = runner.run(2, Duration.ofMillis(200));
+
+    assertThat(result.threads(), is(2));
+    assertThat(result.operations().keySet(), is(Set.of("get", "increment")));
+    long increments = result.operation("increment").calls();
+    long gets = result.operation("get").calls();
+    assertThat(gets, greaterThan(0L));
+    assertThat((double) increments / (increments + gets), closeTo(0.75, 0.05));
+    assertThat(result.operation("increment").errors(), is(0L));
+    assertThat(result.operation("increment").latency().count(), is(increments));
+    assertThat(result.callsPerSecond(), greaterThan(0.0));
+  }
+
+  @Test
+  public void exceptionsAreCountedAsErrors() throws InterruptedException {
+    OperationLoadRunner runner = new OperationLoadRunner(Counter.class);
+
+    Result result = runner.run(1, Duration.ofMillis(100));
+
+    assertThat(result.operation("fail").errors(), is(result.operation("fail").calls()));
+    assertThat(result.operation("get").errors(), is(0L));
+  }
+
+  @Test
+  public void scalingStartsWithOneThread() throws InterruptedException {
+    OperationLoadRunner runner = new OperationLoadRunner(Counter.class).weight("fail", 0);
+
+    Scaling scaling = runner.scale(3, Duration.ofMillis(50));
+
+    assertThat(scaling.results().size(), is(3));
+    assertThat(scaling.results().get(2).threads(), is(3));
+    assertThat(scaling.efficiency(scaling.results().get(0)), is(1.0));
+  }
+
+  @Test
+  public void parametersAreGenerated() throws InterruptedException {
+    OperationLoadRunner runner = new OperationLoadRunner(WithParameters.class);
+
+    Result result = runner.run(1, Duration.ofMillis(100));
+
+    assertThat(result.operation("small").errors(), is(0L));
+    assertThat(WithParameters.smallValues, is(Set.of(5, 6, 7)));
+    assertThat(WithParameters.flags, is(Set.of(true, false)));
+    // lincheck's default range
+    assertThat(WithParameters.longValues.size(), is(21));
+    assertThat(WithParameters.longValues.stream().allMatch(value -> Math.abs((Long) value) <= 10), is(true));
+  }
+
+  @Test
+  public void unsupportedClassesAreRejected() {
+    assertThrows(IllegalArgumentException.class, () -> new OperationLoadRunner(WithUnsupportedParameter.class));
+    assertThrows(IllegalArgumentException.class, () -> new OperationLoadRunner(Object.class));
+    assertThrows(IllegalArgumentException.class, () -> new OperationLoadRunner(WithOtherAnnotation.class));
+    OperationLoadRunner runner = new OperationLoadRunner(Counter.class);
+    assertThrows(IllegalArgumentException.class, () -> runner.weight("missing", 1));
+    runner.weight("increment", 0).weight("get", 0).weight("fail", 0);
+    assertThrows(IllegalStateException.class, () -> runner.run(1, Duration.ofMillis(10)));
+    assertThrows(IllegalArgumentException.class, () -> runner.scale(0, Duration.ofMillis(10)));
+  }
+}
@@ -0,0 +1,110 @@
+package locks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Cost of an acquisition of {@link BiasedLock} compared to {@link ReentrantLock} and {@code synchronized} in three
+ * patterns: one thread taking the lock again and again, the same thread with another one taking the lock once in a
+ * millisecond (which revokes the bias early in the run), and several threads taking it all the time.
+ * <p>
+ * Usage: {@code BiasedLockBenchmark [acquisitions per thread]}. It's not a unit test, so it's not run by the build.
+ */
+public class BiasedLockBenchmark {
+
+  interface CriticalSection {
+    void increment();
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    int acquisitions = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+    System.out.printf("%-16s %-22s %12s%n", "lock", "pattern", "ns/acquire");
+    for (int round = 0; round < 2; round++) {
+      // the first round warms the JIT up
+      boolean print = round == 1;
+      run(print, "BiasedLock", () -> locked(new BiasedLock()), acquisitions);
+      run(print, "ReentrantLock", () -> locked(new ReentrantLock()), acquisitions);
+      run(print, "synchronized", BiasedLockBenchmark::synchronizedSection, acquisitions);
+    }
+  }
+
+  private static void run(boolean print, String name, Supplier<CriticalSection> section, int acquisitions)
+      throws InterruptedException {
+    report(print, name, "single owner", singleOwner(section.get(), acquisitions));
+    report(print, name, "occasional sharing", occasionalSharing(section.get(), acquisitions));
+    report(print, name, "contended (4 threads)", contended(section.get(), 4, acquisitions / 4));
+  }
+
+  private static void report(boolean print, String name, String pattern, double nanosPerAcquire) {
+    if (print) {
+      System.out.printf("%-16s %-22s %12.1f%n", name, pattern, nanosPerAcquire);
+    }
+  }
+
+  private static CriticalSection locked(Lock lock) {
+    long[] counter = new long[1];
+    return () -> {
+      lock.lock();
+      try {
+        counter[0]++;
+      } finally {
+        lock.unlock();
+      }
+    };
+  }
+
+  private static CriticalSection synchronizedSection() {
+    long[] counter = new long[1];
+    return () -> {
+      synchronized (counter) {
+        counter[0]++;
+      }
+    };
+  }
+
+  private static double singleOwner(CriticalSection section, int acquisitions) {
+    long begin = System.nanoTime();
+    for (int i = 0; i < acquisitions; i++) {
+      section.increment();
+    }
+    return (double) (System.nanoTime() - begin) / acquisitions;
+  }
+
+  private static double occasionalSharing(CriticalSection section, int acquisitions) throws InterruptedException {
+    Thread visitor = new Thread(() -> {
+      while (true) {
+        section.increment();
+        try {
+          TimeUnit.MILLISECONDS.sleep(1);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    });
+    // the owner takes the lock first
+    section.increment();
+    visitor.start();
+    double result = singleOwner(section, acquisitions);
+    visitor.interrupt();
+    visitor.join();
+    return result;
+  }
+
+  private static double contended(CriticalSection section, int threads, int acquisitionsPerThread)
+      throws InterruptedException {
+    List<Thread> all = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      all.add(new Thread(() -> singleOwner(section, acquisitionsPerThread)));
+    }
+    long begin = System.nanoTime();
+    all.forEach(Thread::start);
+    for (Thread thread : all) {
+      thread.join();
+    }
+    return (double) (System.nanoTime() - begin) / ((long) threads * acquisitionsPerThread);
+  }
+}
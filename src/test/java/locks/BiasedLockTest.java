@@ -0,0 +1,238 @@
+package locks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.jupiter.api.Test;
+
+import static java.lang.Thread.State.TERMINATED;
+import static java.lang.Thread.State.TIMED_WAITING;
+import static java.lang.Thread.State.WAITING;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static util.CpuIntensiveAlgorithm.run100Ms;
+
+/**
+ * The scenarios of {@link TestReentrantLock} with a {@link BiasedLock}, and the revocation of the bias.
+ */
+public class BiasedLockTest {
+
+  @Test
+  public void lockIsExclusive() {
+    BiasedLock lock = new BiasedLock();
+    AtomicBoolean protectedSectionReached = new AtomicBoolean(false);
+
+    Thread child = new Thread(() -> {
+      lock.lock();
+      protectedSectionReached.set(true);
+    });
+
+    //lock is acquired by the main thread
+    lock.lock();
+    child.start();
+    run100Ms();
+
+    assertThat(protectedSectionReached.get(), is(false));
+    // the child waits for the biased owner to leave, polling it with a timeout
+    assertThat(child.getState(), is(TIMED_WAITING));
+
+    lock.unlock();
+    run100Ms();
+    assertThat(protectedSectionReached.get(), is(true));
+    assertThat(child.getState(), is(TERMINATED));
+  }
+
+  @Test
+  public void deadLockTest() throws InterruptedException {
+    Lock lockA = new BiasedLock();
+    Lock lockB = new BiasedLock();
+    // both locks are biased towards the main thread, so the threads fight over revoked locks
+    lockA.lock();
+    lockA.unlock();
+    lockB.lock();
+    lockB.unlock();
+    AtomicBoolean protectedSectionReachedByThreadA = new AtomicBoolean(false);
+    Thread threadA = new Thread(() -> lockBoth(lockA, lockB, protectedSectionReachedByThreadA));
+    AtomicBoolean protectedSectionReachedByThreadB = new AtomicBoolean(false);
+    Thread threadB = new Thread(() -> lockBoth(lockB, lockA, protectedSectionReachedByThreadB));
+
+    threadA.start();
+    threadB.start();
+    threadA.join(200);
+    threadB.join(200);
+    assertThat(protectedSectionReachedByThreadA.get(), is(false));
+    assertThat(protectedSectionReachedByThreadB.get(), is(false));
+    assertThat(threadA.getState(), is(WAITING));
+    assertThat(threadB.getState(), is(WAITING));
+  }
+
+  @Test
+  public void testConditionAwait() {
+    BiasedLock lock = new BiasedLock();
+    Condition condition = lock.newCondition();
+    AtomicBoolean awaitReached = new AtomicBoolean(false);
+    AtomicBoolean threadIsAwaken = new AtomicBoolean(false);
+    Thread thread = new Thread(() -> {
+      lock.lock();
+      try {
+        awaitReached.compareAndSet(false, true);
+        condition.await();
+        threadIsAwaken.compareAndSet(false, true);
+      } catch (InterruptedException e) {
+        //ignore in this test
+      } finally {
+        lock.unlock();
+      }
+    });
+    thread.start();
+    run100Ms();
+
+    assertThat(awaitReached.get(), is(true));
+    assertThat(threadIsAwaken.get(), is(false));
+    assertThrows(IllegalMonitorStateException.class, condition::signalAll);
+
+    //the thread is waiting for the condition and it releases the lock
+    assertThat(lock.tryLock(), is(true));
+    condition.signalAll();
+    run100Ms();
+
+    // the thread can't acquire the lock yet
+    assertThat(threadIsAwaken.get(), is(false));
+    assertThat(thread.getState(), is(WAITING));
+
+    lock.unlock();
+    run100Ms();
+
+    assertThat(threadIsAwaken.get(), is(true));
+    assertThat(thread.getState(), is(TERMINATED));
+  }
+
+  @Test
+  public void signalIsNotReceivedIfThreadBlockedOnLockAcquisitionNotOnAwait() {
+    BiasedLock lock = new BiasedLock();
+    Condition condition = lock.newCondition();
+    AtomicBoolean awaitReached = new AtomicBoolean(false);
+    AtomicBoolean threadIsAwaken = new AtomicBoolean(false);
+    Thread thread = new Thread(() -> {
+      lock.lock();
+      try {
+        awaitReached.compareAndSet(false, true);
+        condition.await();
+        threadIsAwaken.compareAndSet(false, true);
+      } catch (InterruptedException e) {
+        //ignore in this test
+      } finally {
+        lock.unlock();
+      }
+    });
+
+    lock.lock();
+    thread.start();
+    run100Ms();
+
+    assertThat(awaitReached.get(), is(false));
+    assertThat(threadIsAwaken.get(), is(false));
+
+    condition.signalAll();
+    lock.unlock();
+    run100Ms();
+
+    // the signal has been sent before the thread started waiting
+    assertThat(awaitReached.get(), is(true));
+    assertThat(threadIsAwaken.get(), is(false));
+    assertThat(thread.getState(), is(WAITING));
+    thread.interrupt();
+  }
+
+  @Test
+  public void ownerKeepsTheBiasUntilAnotherThreadComes() throws InterruptedException {
+    BiasedLock lock = new BiasedLock();
+    for (int i = 0; i < 1000; i++) {
+      lock.lock();
+      lock.lock();
+      assertThat(lock.getHoldCount(), is(2));
+      lock.unlock();
+      lock.unlock();
+    }
+    assertThat(lock.isRevoked(), is(false));
+
+    Thread other = new Thread(() -> {
+      lock.lock();
+      lock.unlock();
+    });
+    other.start();
+    other.join();
+
+    assertThat(lock.isRevoked(), is(true));
+    // the former owner goes the slow way now
+    lock.lock();
+    assertThat(lock.isHeldByCurrentThread(), is(true));
+    lock.unlock();
+    assertThat(lock.isHeldByCurrentThread(), is(false));
+    assertThrows(IllegalMonitorStateException.class, lock::unlock);
+  }
+
+  @Test
+  public void ownerInsideIsNotInterruptedByRevocation() {
+    BiasedLock lock = new BiasedLock();
+    lock.lock();
+    AtomicBoolean otherTried = new AtomicBoolean(false);
+    Thread other = new Thread(() -> otherTried.set(!lock.tryLock()));
+    other.start();
+    run100Ms();
+
+    assertThat(otherTried.get(), is(true));
+    assertThat(lock.isRevoked(), is(true));
+    // the biased acquisition is still held and reentrant
+    lock.lock();
+    assertThat(lock.getHoldCount(), is(2));
+    lock.unlock();
+    lock.unlock();
+    assertThat(lock.tryLock(), is(true));
+    lock.unlock();
+  }
+
+  @Test
+  public void counterIsNotCorrupted() throws InterruptedException {
+    BiasedLock lock = new BiasedLock();
+    int[] counter = new int[1];
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      Thread thread = new Thread(() -> {
+        for (int j = 0; j < 20_000; j++) {
+          lock.lock();
+          try {
+            counter[0]++;
+          } finally {
+            lock.unlock();
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertThat(counter[0], is(80_000));
+  }
+
+  private static void lockBoth(Lock first, Lock second, AtomicBoolean protectedSectionReached) {
+    first.lock();
+    try {
+      run100Ms();
+      second.lock();
+      try {
+        protectedSectionReached.compareAndSet(false, true);
+      } finally {
+        second.unlock();
+      }
+    } finally {
+      first.unlock();
+    }
+  }
+}
@@ -0,0 +1,195 @@
+package locks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A check-then-act workload: threads look up random keys in a cache and compute a missing value, while now and then a
+ * key is invalidated. Three ways to guard it are compared: a {@link ReentrantReadWriteLock} where a miss releases the
+ * read lock, takes the write lock and checks again (a retake is wasted if another thread has computed the value in
+ * between), {@link UpgradableReadWriteLock} where a miss upgrades the lock, and a plain exclusive lock.
+ * <p>
+ * Usage: {@code CheckThenActBenchmark [threads] [keys] [operations per thread] [invalidate one in]}. It's not a unit
+ * test, so it's not run by the build.
+ */
+public class CheckThenActBenchmark {
+
+  // keeps the JIT from dropping the lookups
+  static volatile long sink;
+
+  interface Cache {
+    long getOrCompute(int key);
+
+    void invalidate(int key);
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+    int keys = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+    int operations = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+    int invalidateOneIn = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+    System.out.printf("%-22s %12s %14s%n", "lock", "ops/ms", "wasted retakes");
+    for (int round = 0; round < 2; round++) {
+      // the first round warms the JIT up
+      boolean print = round == 1;
+      LongAdder wasted = new LongAdder();
+      report(print, "release and retake", run(retake(wasted), threads, keys, operations, invalidateOneIn),
+          wasted.sum());
+      report(print, "upgradable", run(upgradable(), threads, keys, operations, invalidateOneIn), 0);
+      report(print, "exclusive", run(exclusive(), threads, keys, operations, invalidateOneIn), 0);
+    }
+  }
+
+  private static void report(boolean print, String name, double opsPerMs, long wasted) {
+    if (print) {
+      System.out.printf("%-22s %12.0f %14d%n", name, opsPerMs, wasted);
+    }
+  }
+
+  private static double run(Cache cache, int threads, int keys, int operations, int invalidateOneIn)
+      throws InterruptedException {
+    List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      workers.add(new Thread(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long sum = 0;
+        for (int i = 0; i < operations; i++) {
+          int key = random.nextInt(keys);
+          if (random.nextInt(invalidateOneIn) == 0) {
+            cache.invalidate(key);
+          } else {
+            sum += cache.getOrCompute(key);
+          }
+        }
+        sink = sum;
+      }));
+    }
+    long begin = System.nanoTime();
+    workers.forEach(Thread::start);
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    return (double) threads * operations / ((System.nanoTime() - begin) / 1_000_000.0);
+  }
+
+  private static Cache retake(LongAdder wasted) {
+    ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    Map<Integer, Long> values = new HashMap<>();
+    return new Cache() {
+      @Override
+      public long getOrCompute(int key) {
+        lock.readLock().lock();
+        try {
+          Long value = values.get(key);
+          if (value != null) {
+            return value;
+          }
+        } finally {
+          lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+          // somebody may have computed it while no lock was held
+          Long value = values.get(key);
+          if (value != null) {
+            wasted.increment();
+            return value;
+          }
+          long computed = compute(key);
+          values.put(key, computed);
+          return computed;
+        } finally {
+          lock.writeLock().unlock();
+        }
+      }
+
+      @Override
+      public void invalidate(int key) {
+        lock.writeLock().lock();
+        try {
+          values.remove(key);
+        } finally {
+          lock.writeLock().unlock();
+        }
+      }
+    };
+  }
+
+  private static Cache upgradable() {
+    UpgradableReadWriteLock lock = new UpgradableReadWriteLock();
+    Map<Integer, Long> values = new HashMap<>();
+    return new Cache() {
+      @Override
+      public long getOrCompute(int key) {
+        lock.upgradableLock().lock();
+        try {
+          Long value = values.get(key);
+          if (value != null) {
+            return value;
+          }
+          lock.writeLock().lock();
+          try {
+            long computed = compute(key);
+            values.put(key, computed);
+            return computed;
+          } finally {
+            lock.writeLock().unlock();
+          }
+        } finally {
+          lock.upgradableLock().unlock();
+        }
+      }
+
+      @Override
+      public void invalidate(int key) {
+        lock.writeLock().lock();
+        try {
+          values.remove(key);
+        } finally {
+          lock.writeLock().unlock();
+        }
+      }
+    };
+  }
+
+  private static Cache exclusive() {
+    Lock lock = new ReentrantLock();
+    Map<Integer, Long> values = new HashMap<>();
+    return new Cache() {
+      @Override
+      public long getOrCompute(int key) {
+        lock.lock();
+        try {
+          return values.computeIfAbsent(key, CheckThenActBenchmark::compute);
+        } finally {
+          lock.unlock();
+        }
+      }
+
+      @Override
+      public void invalidate(int key) {
+        lock.lock();
+        try {
+          values.remove(key);
+        } finally {
+          lock.unlock();
+        }
+      }
+    };
+  }
+
+  private static long compute(int key) {
+    long hash = key;
+    for (int i = 0; i < 1000; i++) {
+      hash = hash * 31 + i;
+    }
+    return hash;
+  }
+}
@@ -0,0 +1,90 @@
+package locks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Throughput and fairness of {@link CohortLock} compared to {@link ReentrantLock}. Threads are spread over the clusters
+ * by their index and every critical section updates a few cache lines of shared data, so a handoff to another cluster
+ * would move them across the interconnect on a many-core host. Fairness is Jain's index of the per-thread acquisitions:
+ * 1 when every thread gets the same share, 1/n when one thread gets everything.
+ * <p>
+ * Usage: {@code CohortLockBenchmark [threads] [clusters] [milliseconds per run]}. It's not a unit test, so it's not run
+ * by the build.
+ */
+public class CohortLockBenchmark {
+
+  private static final int SHARED_LONGS = 64;
+
+  public static void main(String[] args) throws InterruptedException {
+    int threads = args.length > 0 ? Integer.parseInt(args[0]) : 2 * Runtime.getRuntime().availableProcessors();
+    int clusters = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+    long millis = args.length > 2 ? Long.parseLong(args[2]) : 2000;
+    System.out.printf("%-26s %16s %10s %14s%n", "lock", "acquisitions/s", "fairness", "local share");
+    run("ReentrantLock", new ReentrantLock(), threads, clusters, millis);
+    run("fair ReentrantLock", new ReentrantLock(true), threads, clusters, millis);
+    for (int maxLocalHandoffs : new int[] {0, 8, 64, 1024}) {
+      CohortLock lock = new CohortLock(clusters, CohortLockBenchmark::clusterOf, maxLocalHandoffs);
+      run("CohortLock (" + maxLocalHandoffs + " handoffs)", lock, threads, clusters, millis);
+    }
+  }
+
+  private static int clusterOf(Thread thread) {
+    String name = thread.getName();
+    return Integer.parseInt(name.substring(name.lastIndexOf('-') + 1));
+  }
+
+  private static void run(String name, Lock lock, int threads, int clusters, long millis)
+      throws InterruptedException {
+    long[] shared = new long[SHARED_LONGS];
+    long[] acquisitions = new long[threads];
+    CountDownLatch start = new CountDownLatch(1);
+    long[] deadline = new long[1];
+    List<Thread> all = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      int index = i;
+      // the suffix is the cluster the thread belongs to
+      all.add(new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        long mine = 0;
+        while (System.nanoTime() < deadline[0]) {
+          lock.lock();
+          try {
+            for (int j = 0; j < SHARED_LONGS; j += 8) {
+              shared[j]++;
+            }
+          } finally {
+            lock.unlock();
+          }
+          mine++;
+        }
+        acquisitions[index] = mine;
+      }, "worker-" + index + "-" + index % clusters));
+    }
+    all.forEach(Thread::start);
+    deadline[0] = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+    start.countDown();
+    for (Thread thread : all) {
+      thread.join();
+    }
+    long total = Arrays.stream(acquisitions).sum();
+    double squares = Arrays.stream(acquisitions).mapToDouble(count -> (double) count * count).sum();
+    double fairness = total == 0 ? 0 : (double) total * total / (threads * squares);
+    String localShare = "-";
+    if (lock instanceof CohortLock) {
+      CohortLock cohortLock = (CohortLock) lock;
+      long local = cohortLock.getLocalHandoffs();
+      localShare = String.format("%.1f%%", 100.0 * local / Math.max(1, local + cohortLock.getGlobalHandoffs()));
+    }
+    System.out.printf("%-26s %,16d %10.3f %14s%n", name, total * 1000 / millis, fairness, localShare);
+  }
+}
@@ -0,0 +1,301 @@
+package locks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Test;
+
+import static java.lang.Thread.State.TERMINATED;
+import static java.lang.Thread.State.WAITING;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static util.CpuIntensiveAlgorithm.run100Ms;
+
+/**
+ * The scenarios of {@link TestReentrantLock} with a {@link CohortLock}, and the cohort handoffs.
+ */
+public class CohortLockTest {
+
+  @Test
+  public void lockIsExclusive() {
+    CohortLock lock = new CohortLock(2);
+    AtomicBoolean protectedSectionReached = new AtomicBoolean(false);
+
+    Thread child = new Thread(() -> {
+      lock.lock();
+      protectedSectionReached.set(true);
+    });
+
+    //lock is acquired by the main thread
+    lock.lock();
+    child.start();
+    run100Ms();
+
+    assertThat(protectedSectionReached.get(), is(false));
+    assertThat(child.getState(), is(WAITING));
+
+    lock.unlock();
+    run100Ms();
+    assertThat(protectedSectionReached.get(), is(true));
+    assertThat(child.getState(), is(TERMINATED));
+  }
+
+  @Test
+  public void deadLockTest() throws InterruptedException {
+    Lock lockA = new CohortLock(2);
+    Lock lockB = new CohortLock(2);
+    AtomicBoolean protectedSectionReachedByThreadA = new AtomicBoolean(false);
+    Thread threadA = new Thread(() -> lockBoth(lockA, lockB, protectedSectionReachedByThreadA));
+    AtomicBoolean protectedSectionReachedByThreadB = new AtomicBoolean(false);
+    Thread threadB = new Thread(() -> lockBoth(lockB, lockA, protectedSectionReachedByThreadB));
+
+    threadA.start();
+    threadB.start();
+    threadA.join(200);
+    threadB.join(200);
+    assertThat(protectedSectionReachedByThreadA.get(), is(false));
+    assertThat(protectedSectionReachedByThreadB.get(), is(false));
+    assertThat(threadA.getState(), is(WAITING));
+    assertThat(threadB.getState(), is(WAITING));
+  }
+
+  @Test
+  public void testConditionAwait() {
+    CohortLock lock = new CohortLock(2);
+    Condition condition = lock.newCondition();
+    AtomicBoolean awaitReached = new AtomicBoolean(false);
+    AtomicBoolean threadIsAwaken = new AtomicBoolean(false);
+    Thread thread = new Thread(() -> {
+      lock.lock();
+      try {
+        awaitReached.compareAndSet(false, true);
+        condition.await();
+        threadIsAwaken.compareAndSet(false, true);
+      } catch (InterruptedException e) {
+        //ignore in this test
+      } finally {
+        lock.unlock();
+      }
+    });
+    thread.start();
+    run100Ms();
+
+    assertThat(awaitReached.get(), is(true));
+    assertThat(threadIsAwaken.get(), is(false));
+    assertThrows(IllegalMonitorStateException.class, condition::signalAll);
+
+    //the thread is waiting for the condition and it releases the lock
+    assertThat(lock.tryLock(), is(true));
+    condition.signalAll();
+    run100Ms();
+
+    // the thread can't acquire the lock yet
+    assertThat(threadIsAwaken.get(), is(false));
+    assertThat(thread.getState(), is(WAITING));
+
+    lock.unlock();
+    run100Ms();
+
+    assertThat(threadIsAwaken.get(), is(true));
+    assertThat(thread.getState(), is(TERMINATED));
+  }
+
+  @Test
+  public void signalIsNotReceivedIfThreadBlockedOnLockAcquisitionNotOnAwait() {
+    CohortLock lock = new CohortLock(2);
+    Condition condition = lock.newCondition();
+    AtomicBoolean awaitReached = new AtomicBoolean(false);
+    AtomicBoolean threadIsAwaken = new AtomicBoolean(false);
+    Thread thread = new Thread(() -> {
+      lock.lock();
+      try {
+        awaitReached.compareAndSet(false, true);
+        condition.await();
+        threadIsAwaken.compareAndSet(false, true);
+      } catch (InterruptedException e) {
+        //ignore in this test
+      } finally {
+        lock.unlock();
+      }
+    });
+
+    lock.lock();
+    thread.start();
+    run100Ms();
+
+    assertThat(awaitReached.get(), is(false));
+    assertThat(threadIsAwaken.get(), is(false));
+
+    condition.signalAll();
+    lock.unlock();
+    run100Ms();
+
+    // the signal has been sent before the thread started waiting
+    assertThat(awaitReached.get(), is(true));
+    assertThat(threadIsAwaken.get(), is(false));
+    assertThat(thread.getState(), is(WAITING));
+    thread.interrupt();
+  }
+
+  @Test
+  public void lockIsReentrant() {
+    CohortLock lock = new CohortLock(2);
+
+    lock.lock();
+    assertThat(lock.tryLock(), is(true));
+    lock.unlock();
+    assertThat(lock.isHeldByCurrentThread(), is(true));
+    lock.unlock();
+
+    assertThat(lock.isHeldByCurrentThread(), is(false));
+    assertThrows(IllegalMonitorStateException.class, lock::unlock);
+  }
+
+  @Test
+  public void ownershipStaysInClusterForBoundedHandoffs() throws InterruptedException {
+    // the thread of cluster 1 is the one named "other", the rest are in cluster 0
+    CohortLock lock = new CohortLock(2, thread -> thread.getName().equals("other") ? 1 : 0, 3);
+    List<String> owners = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    lock.lock();
+    for (String name : new String[] {"other", "a", "b", "c", "d", "e"}) {
+      Thread thread = new Thread(() -> {
+        lock.lock();
+        try {
+          owners.add(Thread.currentThread().getName());
+        } finally {
+          lock.unlock();
+        }
+      }, name);
+      threads.add(thread);
+      thread.start();
+      while (thread.getState() != WAITING) {
+        Thread.onSpinWait();
+      }
+    }
+    lock.unlock();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    // the thread of cluster 1 has been waiting first, but gets the lock after 3 local handoffs
+    assertThat(owners.indexOf("other"), is(3));
+    assertThat(lock.getLocalHandoffs(), greaterThan(3L));
+  }
+
+  @Test
+  public void timedOutWaiterDoesNotKeepTheGlobalLock() throws InterruptedException {
+    CohortLock lock = new CohortLock(2, thread -> thread.getName().equals("other") ? 1 : 0, 64);
+    AtomicBoolean timedOut = new AtomicBoolean(false);
+    Thread sameCluster = new Thread(() -> {
+      try {
+        timedOut.set(!lock.tryLock(50, TimeUnit.MILLISECONDS));
+      } catch (InterruptedException e) {
+        //ignore in this test
+      }
+    });
+    lock.lock();
+    sameCluster.start();
+    sameCluster.join();
+    lock.unlock();
+
+    AtomicBoolean otherClusterLocked = new AtomicBoolean(false);
+    Thread otherCluster = new Thread(() -> {
+      try {
+        otherClusterLocked.set(lock.tryLock(1, TimeUnit.SECONDS));
+      } catch (InterruptedException e) {
+        //ignore in this test
+      }
+    }, "other");
+    otherCluster.start();
+    otherCluster.join();
+
+    assertThat(timedOut.get(), is(true));
+    assertThat(otherClusterLocked.get(), is(true));
+  }
+
+  @Test
+  public void waiterGivingUpWhileTheOwnerReleasesDoesNotKeepTheGlobalLock() throws InterruptedException {
+    CohortLock lock = new CohortLock(2, thread -> thread.getName().equals("other") ? 1 : 0, 64);
+    for (int i = 0; i < 500; i++) {
+      lock.lock();
+      Thread sameCluster = new Thread(() -> {
+        try {
+          if (lock.tryLock(1, TimeUnit.MILLISECONDS)) {
+            lock.unlock();
+          }
+        } catch (InterruptedException e) {
+          //ignore in this test
+        }
+      });
+      sameCluster.start();
+      // releases at about the time the waiter gives up
+      LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(TimeUnit.MILLISECONDS.toNanos(2)));
+      lock.unlock();
+      sameCluster.join();
+
+      AtomicBoolean otherClusterLocked = new AtomicBoolean(false);
+      Thread otherCluster = new Thread(() -> {
+        try {
+          if (lock.tryLock(1, TimeUnit.SECONDS)) {
+            otherClusterLocked.set(true);
+            lock.unlock();
+          }
+        } catch (InterruptedException e) {
+          //ignore in this test
+        }
+      }, "other");
+      otherCluster.start();
+      otherCluster.join();
+      assertThat("iteration " + i, otherClusterLocked.get(), is(true));
+    }
+  }
+
+  @Test
+  public void counterIsNotCorrupted() throws InterruptedException {
+    CohortLock lock = new CohortLock(4, thread -> (int) thread.getId(), 8);
+    int[] counter = new int[1];
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      Thread thread = new Thread(() -> {
+        for (int j = 0; j < 10_000; j++) {
+          lock.lock();
+          try {
+            counter[0]++;
+          } finally {
+            lock.unlock();
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertThat(counter[0], is(80_000));
+  }
+
+  private static void lockBoth(Lock first, Lock second, AtomicBoolean protectedSectionReached) {
+    first.lock();
+    try {
+      run100Ms();
+      second.lock();
+      try {
+        protectedSectionReached.compareAndSet(false, true);
+      } finally {
+        second.unlock();
+      }
+    } finally {
+      first.unlock();
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package locks;
+
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+/**
+ * A child JVM forked by {@link CrossProcessLockTest}. Usage:
+ * <ul>
+ *   <li>{@code increment <lock file> <counter file> <times>} increments the counter stored in the file under the lock</li>
+ *   <li>{@code crash <lock file>} acquires the lock and dies without releasing it</li>
+ *   <li>{@code hang <lock file> <lease seconds>} acquires the lock and never releases it</li>
+ *   <li>{@code block <lock file>} acquires the lock and holds the file lock the waiters queue on, so they block in
+ *   {@link FileChannel#lock()}</li>
+ * </ul>
+ */
+public class CrossProcessLockChild {
+
+  public static void main(String[] args) throws Exception {
+    Path lockFile = Paths.get(args[1]);
+    switch (args[0]) {
+      case "increment":
+        increment(lockFile, Paths.get(args[2]), Integer.parseInt(args[3]));
+        break;
+      case "crash":
+        new CrossProcessLock(lockFile).lock();
+        Runtime.getRuntime().halt(0);
+        break;
+      case "hang":
+        new CrossProcessLock(lockFile, Duration.ofSeconds(Long.parseLong(args[2]))).lock();
+        System.out.println("locked");
+        Thread.sleep(Long.MAX_VALUE);
+        break;
+      case "block":
+        new CrossProcessLock(lockFile).lock();
+        // the queue lives right after the lock word
+        FileChannel.open(lockFile, StandardOpenOption.WRITE).lock(Long.BYTES, 1, false);
+        System.out.println("locked");
+        Thread.sleep(Long.MAX_VALUE);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown command " + args[0]);
+    }
+  }
+
+  private static void increment(Path lockFile, Path counterFile, int times) throws Exception {
+    try (CrossProcessLock lock = new CrossProcessLock(lockFile);
+         RandomAccessFile counter = new RandomAccessFile(counterFile.toFile(), "rw")) {
+      for (int i = 0; i < times; i++) {
+        lock.lock();
+        try {
+          // read, increment and write back: a lost update if another process gets in between
+          counter.seek(0);
+          int count = counter.length() == 0 ? 0 : counter.readInt();
+          Thread.yield();
+          counter.seek(0);
+          counter.writeInt(count + 1);
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,212 @@
+package locks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.lang.Thread.State.TERMINATED;
+import static java.lang.Thread.State.TIMED_WAITING;
+import static java.lang.Thread.State.WAITING;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.either;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static util.CpuIntensiveAlgorithm.run100Ms;
+
+public class CrossProcessLockTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  public void lockIsExclusiveWithinProcess() throws IOException {
+    try (CrossProcessLock lock = new CrossProcessLock(dir.resolve("lock"))) {
+      AtomicBoolean protectedSectionReached = new AtomicBoolean(false);
+      Thread child = new Thread(() -> {
+        lock.lock();
+        protectedSectionReached.set(true);
+      });
+
+      lock.lock();
+      child.start();
+      run100Ms();
+
+      assertThat(protectedSectionReached.get(), is(false));
+      assertThat(child.getState(), is(WAITING));
+
+      lock.unlock();
+      run100Ms();
+      assertThat(protectedSectionReached.get(), is(true));
+      assertThat(child.getState(), is(TERMINATED));
+    }
+  }
+
+  @Test
+  public void lockIsReentrant() throws IOException {
+    try (CrossProcessLock lock = new CrossProcessLock(dir.resolve("lock"))) {
+      lock.lock();
+      lock.lock();
+      lock.unlock();
+      assertThat(lock.isHeldByCurrentThread(), is(true));
+      lock.unlock();
+      assertThat(lock.isHeldByCurrentThread(), is(false));
+      assertThrows(IllegalMonitorStateException.class, lock::unlock);
+    }
+  }
+
+  @Test
+  public void processesAreMutuallyExclusive() throws Exception {
+    Path lockFile = dir.resolve("lock");
+    Path counterFile = dir.resolve("counter");
+    int processes = 4;
+    int increments = 300;
+    List<Process> children = new ArrayList<>();
+    for (int i = 0; i < processes; i++) {
+      children.add(fork("increment", lockFile.toString(), counterFile.toString(), String.valueOf(increments)));
+    }
+    for (Process child : children) {
+      assertThat(child.waitFor(60, TimeUnit.SECONDS), is(true));
+      assertThat(child.exitValue(), is(0));
+    }
+
+    try (RandomAccessFile counter = new RandomAccessFile(counterFile.toFile(), "r")) {
+      assertThat(counter.readInt(), is(processes * increments));
+    }
+  }
+
+  @Test
+  public void lockIsRecoveredAfterOwnerCrash() throws Exception {
+    Path lockFile = dir.resolve("lock");
+    Process child = fork("crash", lockFile.toString());
+    assertThat(child.waitFor(30, TimeUnit.SECONDS), is(true));
+
+    try (CrossProcessLock lock = new CrossProcessLock(lockFile)) {
+      assertThat(lock.tryLock(5, TimeUnit.SECONDS), is(true));
+      lock.unlock();
+    }
+  }
+
+  @Test
+  public void lockIsRecoveredAfterLeaseExpiration() throws Exception {
+    Path lockFile = dir.resolve("lock");
+    Process child = fork("hang", lockFile.toString(), "1");
+    try {
+      awaitOutput(child, "locked");
+      try (CrossProcessLock lock = new CrossProcessLock(lockFile)) {
+        // the owner is alive, so only the expired lease lets us in
+        assertThat(lock.tryLock(), is(false));
+        assertThat(lock.tryLock(10, TimeUnit.SECONDS), is(true));
+        lock.unlock();
+      }
+    } finally {
+      child.destroyForcibly();
+    }
+  }
+
+  @Test
+  public void waiterIsParkedWhileAnotherProcessHoldsTheLock() throws Exception {
+    Path lockFile = dir.resolve("lock");
+    Process child = fork("hang", lockFile.toString(), "60");
+    try {
+      awaitOutput(child, "locked");
+      try (CrossProcessLock lock = new CrossProcessLock(lockFile)) {
+        AtomicBoolean protectedSectionReached = new AtomicBoolean(false);
+        Thread waiter = new Thread(() -> {
+          lock.lock();
+          protectedSectionReached.set(true);
+          lock.unlock();
+        });
+        waiter.start();
+        run100Ms();
+        assertThat(protectedSectionReached.get(), is(false));
+        assertThat(waiter.getState(), either(is(TIMED_WAITING)).or(is(Thread.State.RUNNABLE)));
+
+        // the owner dies, the waiter takes the lock over
+        child.destroyForcibly().waitFor();
+        waiter.join(5000);
+        assertThat(protectedSectionReached.get(), is(true));
+      }
+    } finally {
+      child.destroyForcibly();
+    }
+  }
+
+  @Test
+  public void interruptedWaitersLeaveTheLockUsable() throws Exception {
+    Path lockFile = dir.resolve("lock");
+    Process child = fork("block", lockFile.toString());
+    try {
+      awaitOutput(child, "locked");
+      try (CrossProcessLock lock = new CrossProcessLock(lockFile)) {
+        AtomicBoolean interruptedExceptionThrown = new AtomicBoolean(false);
+        Thread interruptible = new Thread(() -> {
+          try {
+            lock.lockInterruptibly();
+          } catch (InterruptedException e) {
+            interruptedExceptionThrown.set(true);
+          }
+        });
+        interruptible.start();
+        run100Ms();
+        // blocked in FileChannel.lock(), the interrupt closes the channel
+        interruptible.interrupt();
+        interruptible.join(5000);
+        assertThat(interruptedExceptionThrown.get(), is(true));
+
+        AtomicBoolean protectedSectionReached = new AtomicBoolean(false);
+        AtomicBoolean interruptKept = new AtomicBoolean(false);
+        Thread uninterruptible = new Thread(() -> {
+          lock.lock();
+          protectedSectionReached.set(true);
+          interruptKept.set(Thread.currentThread().isInterrupted());
+          lock.unlock();
+        });
+        uninterruptible.start();
+        run100Ms();
+        uninterruptible.interrupt();
+        run100Ms();
+        assertThat(protectedSectionReached.get(), is(false));
+        assertThat(uninterruptible.isAlive(), is(true));
+
+        child.destroyForcibly().waitFor();
+        uninterruptible.join(5000);
+        assertThat(protectedSectionReached.get(), is(true));
+        assertThat(interruptKept.get(), is(true));
+        assertThat(lock.tryLock(5, TimeUnit.SECONDS), is(true));
+        lock.unlock();
+      }
+    } finally {
+      child.destroyForcibly();
+    }
+  }
+
+  private static Process fork(String... args) throws IOException {
+    String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    List<String> command = new ArrayList<>(
+        Arrays.asList(java, "-cp", System.getProperty("java.class.path"), CrossProcessLockChild.class.getName()));
+    command.addAll(Arrays.asList(args));
+    return new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+  }
+
+  private static void awaitOutput(Process child, String expected) throws IOException {
+    BufferedReader output = new BufferedReader(new InputStreamReader(child.getInputStream()));
+    String line;
+    while ((line = output.readLine()) != null) {
+      if (line.equals(expected)) {
+        return;
+      }
+    }
+    throw new IllegalStateException("Child exited without printing " + expected);
+  }
+}
@@ -0,0 +1,89 @@
+package locks;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round-trip acquisition latency and throughput of {@link RemoteLock} over loopback. Every client has its own
+ * connection and a single thread locking and unlocking for the given time.
+ * <p>
+ * Usage: {@code RemoteLockBenchmark [clients...] [seconds]}, e.g. {@code RemoteLockBenchmark 1 10 100 1000 2000 5}.
+ * It's not a unit test, so it's not run by the build.
+ */
+public class RemoteLockBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int[] clientCounts = args.length > 1
+        ? Arrays.stream(args, 0, args.length - 1).mapToInt(Integer::parseInt).toArray()
+        : new int[] {1, 10, 100, 1000};
+    long seconds = args.length > 1 ? Long.parseLong(args[args.length - 1]) : 5;
+
+    System.out.printf("%8s %14s %10s %10s %10s%n", "clients", "acquires/s", "p50 us", "p99 us", "max us");
+    for (int clients : clientCounts) {
+      try (LockServer server = new LockServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)).start()) {
+        run(server.address(), clients, TimeUnit.SECONDS.toNanos(seconds));
+      }
+    }
+  }
+
+  private static void run(InetSocketAddress address, int clients, long durationNanos) throws Exception {
+    List<RemoteLock> locks = new ArrayList<>();
+    for (int i = 0; i < clients; i++) {
+      locks.add(new RemoteLock(address));
+    }
+    long[][] latencies = new long[clients][];
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < clients; i++) {
+      int client = i;
+      Thread thread = new Thread(() -> {
+        RemoteLock lock = locks.get(client);
+        long[] samples = new long[1024];
+        int count = 0;
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        long end = System.nanoTime() + durationNanos;
+        while (System.nanoTime() < end) {
+          long begin = System.nanoTime();
+          lock.lock();
+          long acquired = System.nanoTime();
+          lock.unlock();
+          if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+          }
+          samples[count++] = acquired - begin;
+        }
+        latencies[client] = Arrays.copyOf(samples, count);
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (RemoteLock lock : locks) {
+      lock.close();
+    }
+
+    long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+    System.out.printf("%8d %14.0f %10.1f %10.1f %10.1f%n",
+        clients,
+        all.length / (durationNanos / 1e9),
+        percentile(all, 0.50) / 1e3,
+        percentile(all, 0.99) / 1e3,
+        all.length == 0 ? 0 : all[all.length - 1] / 1e3);
+  }
+
+  private static long percentile(long[] sorted, double percentile) {
+    return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, Math.round(percentile * sorted.length))];
+  }
+}
@@ -0,0 +1,258 @@
+package locks;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static java.lang.Thread.State.TERMINATED;
+import static java.lang.Thread.State.WAITING;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static util.CpuIntensiveAlgorithm.run100Ms;
+
+public class RemoteLockTest {
+
+  private final List<LockServer> servers = new ArrayList<>();
+  private final List<RemoteLock> clients = new ArrayList<>();
+  private LockServer server;
+
+  @BeforeEach
+  public void startServer() throws IOException {
+    server = startNewServer();
+  }
+
+  @AfterEach
+  public void stopServers() throws IOException {
+    for (RemoteLock client : clients) {
+      client.close();
+    }
+    for (LockServer s : servers) {
+      s.close();
+    }
+  }
+
+  @Test
+  public void lockIsExclusive() throws IOException {
+    RemoteLock lock = connect(server);
+    AtomicBoolean protectedSectionReached = new AtomicBoolean(false);
+
+    Thread child = new Thread(() -> {
+      lock.lock();
+      protectedSectionReached.set(true);
+    });
+
+    //lock is acquired by the main thread
+    lock.lock();
+    child.start();
+    run100Ms();
+
+    assertThat(protectedSectionReached.get(), is(false));
+    assertThat(child.getState(), is(WAITING));
+
+    lock.unlock();
+    run100Ms();
+    assertThat(protectedSectionReached.get(), is(true));
+    assertThat(child.getState(), is(TERMINATED));
+  }
+
+  @Test
+  public void lockIsExclusiveBetweenClients() throws Exception {
+    RemoteLock first = connect(server);
+    RemoteLock second = connect(server);
+
+    first.lock();
+    assertThat(second.tryLock(), is(false));
+    first.unlock();
+    // unlock doesn't wait for the server, the release reaches it a bit later
+    assertThat(second.tryLock(5, TimeUnit.SECONDS), is(true));
+    second.unlock();
+  }
+
+  @Test
+  public void timedOutAcquisitionsDontLeakTheLock() throws Exception {
+    RemoteLock first = connect(server);
+    RemoteLock second = connect(server);
+
+    // timeouts close to the response time make the grant race with giving up
+    for (int i = 0; i < 200; i++) {
+      first.lock();
+      first.unlock();
+      if (second.tryLock(i % 20, TimeUnit.MICROSECONDS)) {
+        second.unlock();
+      }
+    }
+
+    // the grants that came too late are either kept and released above or released by the client
+    assertThat(first.tryLock(5, TimeUnit.SECONDS), is(true));
+    first.unlock();
+  }
+
+  @Test
+  public void deadLockTest() throws Exception {
+    RemoteLock lockA = connect(server);
+    RemoteLock lockB = connect(startNewServer());
+    AtomicBoolean protectedSectionReachedByThreadA = new AtomicBoolean(false);
+    Thread threadA = new Thread(() -> {
+      lockA.lock();
+      try {
+        run100Ms();
+        lockB.lock();
+        try {
+          protectedSectionReachedByThreadA.compareAndSet(false, true);
+        } finally {
+          lockB.unlock();
+        }
+      } finally {
+        lockA.unlock();
+      }
+    });
+
+    AtomicBoolean protectedSectionReachedByThreadB = new AtomicBoolean(false);
+    Thread threadB = new Thread(() -> {
+      lockB.lock();
+      try {
+        run100Ms();
+        lockA.lock();
+        try {
+          protectedSectionReachedByThreadB.compareAndSet(false, true);
+        } finally {
+          lockA.unlock();
+        }
+      } finally {
+        lockB.unlock();
+      }
+    });
+
+    threadA.start();
+    threadB.start();
+    threadA.join(200);
+    threadB.join(200);
+    assertThat(protectedSectionReachedByThreadA.get(), is(false));
+    assertThat(protectedSectionReachedByThreadB.get(), is(false));
+    assertThat(threadA.getState(), is(WAITING));
+    assertThat(threadB.getState(), is(WAITING));
+  }
+
+  @Test
+  public void testConditionAwait() throws IOException {
+    RemoteLock lock = connect(server);
+    Condition condition = lock.newCondition();
+    AtomicBoolean awaitReached = new AtomicBoolean(false);
+    AtomicBoolean threadIsAwaken = new AtomicBoolean(false);
+    Thread thread = new Thread(() -> {
+      lock.lock();
+      try {
+        awaitReached.compareAndSet(false, true);
+        condition.await();
+        threadIsAwaken.compareAndSet(false, true);
+      } catch (InterruptedException e) {
+        //ignore in this test
+      } finally {
+        lock.unlock();
+      }
+    });
+    thread.start();
+    run100Ms();
+
+    assertThat(awaitReached.get(), is(true));
+    assertThat(threadIsAwaken.get(), is(false));
+    assertThrows(IllegalMonitorStateException.class, condition::signalAll);
+
+    //the thread is waiting for the condition and it releases the lock
+    assertThat(lock.tryLock(), is(true));
+    condition.signalAll();
+    run100Ms();
+
+    // the thread can't reacquire the lock yet
+    assertThat(threadIsAwaken.get(), is(false));
+    assertThat(thread.getState(), is(WAITING));
+
+    lock.unlock();
+    run100Ms();
+
+    assertThat(threadIsAwaken.get(), is(true));
+    assertThat(thread.getState(), is(TERMINATED));
+  }
+
+  @Test
+  public void fencingTokensGrowWithEveryAcquisition() throws IOException {
+    RemoteLock first = connect(server);
+    RemoteLock second = connect(server);
+
+    first.lock();
+    long firstToken = first.getFencingToken();
+    first.unlock();
+    second.lock();
+    long secondToken = second.getFencingToken();
+    second.unlock();
+
+    assertThat(secondToken, greaterThan(firstToken));
+    assertThrows(IllegalMonitorStateException.class, second::getFencingToken);
+  }
+
+  @Test
+  public void lockIsReleasedWhenOwnerDisconnects() throws Exception {
+    RemoteLock owner = connect(server);
+    RemoteLock waiter = connect(server);
+
+    owner.lock();
+    assertThat(waiter.tryLock(100, TimeUnit.MILLISECONDS), is(false));
+    owner.close();
+    assertThat(waiter.tryLock(5, TimeUnit.SECONDS), is(true));
+    waiter.unlock();
+  }
+
+  @Test
+  public void pipelinedRequestsOfOneClientAreMutuallyExclusive() throws Exception {
+    RemoteLock lock = connect(server);
+    int[] counter = new int[1];
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      Thread thread = new Thread(() -> {
+        for (int j = 0; j < 500; j++) {
+          lock.lock();
+          try {
+            counter[0]++;
+          } finally {
+            lock.unlock();
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    lock.lock();
+    try {
+      assertThat(counter[0], is(8 * 500));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private LockServer startNewServer() throws IOException {
+    LockServer newServer = new LockServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)).start();
+    servers.add(newServer);
+    return newServer;
+  }
+
+  private RemoteLock connect(LockServer lockServer) throws IOException {
+    RemoteLock client = new RemoteLock(lockServer.address());
+    clients.add(client);
+    return client;
+  }
+}
@@ -0,0 +1,105 @@
+package locks;
+
+import org.jetbrains.kotlinx.lincheck.LinChecker;
+import org.jetbrains.kotlinx.lincheck.annotations.Operation;
+import org.jetbrains.kotlinx.lincheck.strategy.stress.StressCTest;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The state of {@link DirtyReadFixTest} with check-then-act operations: the check is done under the upgradable lock
+ * and the write follows without checking again.
+ */
+@StressCTest
+public class UpgradableReadWriteLockLincheckTest {
+
+  private static final int LIMIT = 3;
+
+  public static class StringAndNumber {
+    UpgradableReadWriteLock lock = new UpgradableReadWriteLock();
+    private int number = 0;
+    private String string = "0";
+
+    public int getNumber() {
+      lock.readLock().lock();
+      try {
+        return number;
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+
+    public String getString() {
+      lock.readLock().lock();
+      try {
+        return string;
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+
+    public boolean incrementIfBelowLimit() {
+      lock.upgradableLock().lock();
+      try {
+        if (number >= LIMIT) {
+          return false;
+        }
+        lock.writeLock().lock();
+        try {
+          number++;
+          string = String.valueOf(number);
+          return true;
+        } finally {
+          lock.writeLock().unlock();
+        }
+      } finally {
+        lock.upgradableLock().unlock();
+      }
+    }
+
+    /**
+     * Resets the number and reads it back after downgrading to the read lock.
+     */
+    public String resetAndRead() {
+      lock.writeLock().lock();
+      try {
+        number = 0;
+        string = "0";
+        lock.readLock().lock();
+      } finally {
+        lock.writeLock().unlock();
+      }
+      try {
+        return number + "/" + string;
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+  }
+
+  StringAndNumber counter = new StringAndNumber();
+
+  @Operation
+  public boolean incrementIfBelowLimit() {
+    return counter.incrementIfBelowLimit();
+  }
+
+  @Operation
+  public String resetAndRead() {
+    return counter.resetAndRead();
+  }
+
+  @Operation
+  public String getString() {
+    return counter.getString();
+  }
+
+  @Operation
+  public int getNumber() {
+    return counter.getNumber();
+  }
+
+  @Test
+  public void test() {
+    LinChecker.check(UpgradableReadWriteLockLincheckTest.class);
+  }
+}
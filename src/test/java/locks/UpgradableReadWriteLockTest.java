@@ -0,0 +1,181 @@
+package locks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The scenarios of {@link TestReadWriteLock} with an {@link UpgradableReadWriteLock}, and the upgradable mode.
+ */
+public class UpgradableReadWriteLockTest {
+
+  @Test
+  public void readIsNotExclusive() throws InterruptedException {
+    UpgradableReadWriteLock lock = new UpgradableReadWriteLock();
+    lock.readLock().lock();
+
+    assertThat(reachedInAnotherThread(lock.readLock()), is(true));
+  }
+
+  @Test
+  public void writeIsExclusive() throws InterruptedException {
+    UpgradableReadWriteLock lock = new UpgradableReadWriteLock();
+    lock.writeLock().lock();
+
+    assertThat(reachedInAnotherThread(lock.writeLock()), is(false));
+    assertThat(reachedInAnotherThread(lock.readLock()), is(false));
+    assertThat(reachedInAnotherThread(lock.upgradableLock()), is(false));
+  }
+
+  @Test
+  public void writeWaitsForRead() throws InterruptedException {
+    UpgradableReadWriteLock lock = new UpgradableReadWriteLock();
+    lock.readLock().lock();
+    AtomicBoolean reachedByConcurrentWriter = new AtomicBoolean(false);
+    Thread thread = new Thread(() -> {
+      lock.writeLock().lock();
+      reachedByConcurrentWriter.compareAndSet(false, true);
+    });
+    thread.start();
+    thread.join(100);
+    assertThat(reachedByConcurrentWriter.get(), is(false));
+    lock.readLock().unlock();
+    thread.join(100);
+    assertThat(reachedByConcurrentWriter.get(), is(true));
+  }
+
+  @Test
+  public void waitingWriterKeepsNewReadersOut() throws InterruptedException {
+    UpgradableReadWriteLock lock = new UpgradableReadWriteLock();
+    lock.readLock().lock();
+    Thread writerThread = new Thread(() -> lock.writeLock().lock());
+    writerThread.start();
+    writerThread.join(100);
+
+    assertThat(reachedInAnotherThread(lock.readLock()), is(false));
+    lock.readLock().unlock();
+    writerThread.join(100);
+    assertThat(lock.isWriteLocked(), is(true));
+  }
+
+  @Test
+  public void upgradableCoexistsWithReadersButNotWithAnotherUpgradable() throws InterruptedException {
+    UpgradableReadWriteLock lock = new UpgradableReadWriteLock();
+    lock.upgradableLock().lock();
+
+    assertThat(reachedInAnotherThread(lock.readLock()), is(true));
+    assertThat(reachedInAnotherThread(lock.upgradableLock()), is(false));
+    assertThat(reachedInAnotherThread(lock.writeLock()), is(false));
+  }
+
+  @Test
+  public void upgradeWaitsForReadersAndKeepsOthersOut() throws InterruptedException {
+    UpgradableReadWriteLock lock = new UpgradableReadWriteLock();
+    lock.readLock().lock();
+    AtomicBoolean upgraded = new AtomicBoolean(false);
+    Thread upgrader = new Thread(() -> {
+      lock.upgradableLock().lock();
+      lock.writeLock().lock();
+      upgraded.set(true);
+    });
+    upgrader.start();
+    upgrader.join(100);
+    assertThat(upgraded.get(), is(false));
+    assertThat(lock.isUpgradableLocked(), is(true));
+
+    lock.readLock().unlock();
+    upgrader.join(100);
+    assertThat(upgraded.get(), is(true));
+    assertThat(lock.isWriteLocked(), is(true));
+  }
+
+  @Test
+  public void writerDowngradesToReader() throws InterruptedException {
+    UpgradableReadWriteLock lock = new UpgradableReadWriteLock();
+    lock.upgradableLock().lock();
+    lock.writeLock().lock();
+    assertThat(reachedInAnotherThread(lock.readLock()), is(false));
+
+    // write -> upgradable -> read
+    lock.writeLock().unlock();
+    lock.readLock().lock();
+    lock.upgradableLock().unlock();
+
+    assertThat(reachedInAnotherThread(lock.readLock()), is(true));
+    assertThat(reachedInAnotherThread(lock.upgradableLock()), is(true));
+    lock.readLock().unlock();
+    assertThrows(IllegalMonitorStateException.class, () -> lock.readLock().unlock());
+  }
+
+  @Test
+  public void readLockCantBeUpgraded() {
+    UpgradableReadWriteLock lock = new UpgradableReadWriteLock();
+    lock.readLock().lock();
+
+    assertThrows(IllegalMonitorStateException.class, () -> lock.writeLock().lock());
+    assertThrows(IllegalMonitorStateException.class, () -> lock.upgradableLock().lock());
+    assertThrows(IllegalMonitorStateException.class, () -> lock.writeLock().unlock());
+  }
+
+  @Test
+  public void readersOnTheFastPathNeverOverlapWithAWriter() throws InterruptedException {
+    UpgradableReadWriteLock lock = new UpgradableReadWriteLock();
+    AtomicInteger readersInside = new AtomicInteger();
+    AtomicBoolean overlapped = new AtomicBoolean(false);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      boolean writes = i == 0;
+      Thread thread = new Thread(() -> {
+        for (int j = 0; j < 20_000; j++) {
+          Lock mode = writes ? lock.writeLock() : lock.readLock();
+          mode.lock();
+          try {
+            if (writes && (readersInside.get() > 0 || lock.getReadLockCount() > 0)) {
+              overlapped.set(true);
+            } else if (!writes) {
+              readersInside.incrementAndGet();
+              if (lock.isWriteLocked()) {
+                overlapped.set(true);
+              }
+              readersInside.decrementAndGet();
+            }
+          } finally {
+            mode.unlock();
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(overlapped.get(), is(false));
+    assertThat(lock.getReadLockCount(), is(0));
+    assertThat(reachedInAnotherThread(lock.writeLock()), is(true));
+  }
+
+  /**
+   * Tries to take the lock in another thread for 100 ms. The lock is held by the thread, if it is taken.
+   */
+  private static boolean reachedInAnotherThread(Lock lock) throws InterruptedException {
+    AtomicBoolean reached = new AtomicBoolean(false);
+    Thread thread = new Thread(() -> {
+      lock.lock();
+      reached.set(true);
+    });
+    thread.setDaemon(true);
+    thread.start();
+    thread.join(100);
+    return reached.get();
+  }
+}
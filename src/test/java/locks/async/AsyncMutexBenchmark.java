@@ -0,0 +1,95 @@
+package locks.async;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Throughput of {@link AsyncMutex} and {@link AsyncReadWriteLock} compared to a {@link ReentrantLock} taken by the tasks
+ * of a thread pool. Each task increments a shared counter inside the critical section. With the blocking lock the pool
+ * threads are parked while waiting; with the asynchronous ones they keep running other tasks.
+ * <p>
+ * Usage: {@code AsyncMutexBenchmark [tasks] [pool threads...]}. It's not a unit test, so it's not run by the build.
+ */
+public class AsyncMutexBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    int[] poolSizes = {1, 2, 4, 8, 16, 64};
+    if (args.length > 1) {
+      poolSizes = new int[args.length - 1];
+      for (int i = 1; i < args.length; i++) {
+        poolSizes[i - 1] = Integer.parseInt(args[i]);
+      }
+    }
+    System.out.printf("%8s %16s %16s %16s%n", "threads", "ReentrantLock", "AsyncMutex", "AsyncRWLock(w)");
+    for (int threads : poolSizes) {
+      System.out.printf("%8d %12.0f/s %12.0f/s %12.0f/s%n",
+          threads, blocking(threads, tasks), asyncMutex(threads, tasks), asyncWriteLock(threads, tasks));
+    }
+  }
+
+  private static double blocking(int threads, int tasks) throws InterruptedException {
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    ReentrantLock lock = new ReentrantLock();
+    long[] counter = new long[1];
+    CountDownLatch done = new CountDownLatch(tasks);
+    long begin = System.nanoTime();
+    for (int i = 0; i < tasks; i++) {
+      pool.execute(() -> {
+        lock.lock();
+        try {
+          counter[0]++;
+        } finally {
+          lock.unlock();
+        }
+        done.countDown();
+      });
+    }
+    done.await();
+    return perSecond(tasks, begin, pool);
+  }
+
+  private static double asyncMutex(int threads, int tasks) throws InterruptedException {
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    AsyncMutex mutex = new AsyncMutex(pool);
+    long[] counter = new long[1];
+    CountDownLatch done = new CountDownLatch(tasks);
+    long begin = System.nanoTime();
+    for (int i = 0; i < tasks; i++) {
+      pool.execute(() -> mutex.acquire().thenAccept(permit -> {
+        counter[0]++;
+        permit.release();
+        done.countDown();
+      }));
+    }
+    done.await();
+    return perSecond(tasks, begin, pool);
+  }
+
+  private static double asyncWriteLock(int threads, int tasks) throws InterruptedException {
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    AsyncReadWriteLock lock = new AsyncReadWriteLock(pool);
+    long[] counter = new long[1];
+    CountDownLatch done = new CountDownLatch(tasks);
+    long begin = System.nanoTime();
+    for (int i = 0; i < tasks; i++) {
+      pool.execute(() -> lock.acquireWrite().thenAccept(permit -> {
+        counter[0]++;
+        permit.release();
+        done.countDown();
+      }));
+    }
+    done.await();
+    return perSecond(tasks, begin, pool);
+  }
+
+  private static double perSecond(int tasks, long begin, ExecutorService pool) throws InterruptedException {
+    double seconds = (System.nanoTime() - begin) / 1e9;
+    pool.shutdown();
+    pool.awaitTermination(1, TimeUnit.MINUTES);
+    return tasks / seconds;
+  }
+}
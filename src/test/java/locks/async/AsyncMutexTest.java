@@ -0,0 +1,121 @@
+package locks.async;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AsyncMutexTest {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  @AfterEach
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void uncontendedAcquisitionIsCompletedImmediately() {
+    AsyncMutex mutex = new AsyncMutex(executor);
+
+    CompletableFuture<Permit> permit = mutex.acquire().toCompletableFuture();
+
+    assertThat(permit.isDone(), is(true));
+    assertThat(mutex.isLocked(), is(true));
+    permit.join().release();
+    assertThat(mutex.isLocked(), is(false));
+  }
+
+  @Test
+  public void waitersAreGrantedInFifoOrder() {
+    AsyncMutex mutex = new AsyncMutex(executor);
+    Permit owner = mutex.acquire().toCompletableFuture().join();
+    List<Integer> order = new ArrayList<>();
+    List<CompletableFuture<Void>> waiters = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      int id = i;
+      waiters.add(mutex.acquire().thenAccept(permit -> {
+        order.add(id);
+        permit.release();
+      }).toCompletableFuture());
+    }
+
+    assertThat(waiters.stream().anyMatch(CompletableFuture::isDone), is(false));
+    owner.release();
+    CompletableFuture.allOf(waiters.toArray(new CompletableFuture<?>[0])).join();
+
+    assertThat(order, is(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9)));
+  }
+
+  @Test
+  public void cancelledWaiterIsSkipped() {
+    AsyncMutex mutex = new AsyncMutex(executor);
+    Permit owner = mutex.acquire().toCompletableFuture().join();
+    CompletableFuture<Permit> cancelled = mutex.acquire().toCompletableFuture();
+    CompletableFuture<Permit> next = mutex.acquire().toCompletableFuture();
+
+    cancelled.cancel(false);
+    owner.release();
+
+    next.join().release();
+    assertThat(mutex.isLocked(), is(false));
+  }
+
+  @Test
+  public void timedOutWaiterGivesUpItsPlace() {
+    AsyncMutex mutex = new AsyncMutex(executor);
+    Permit owner = mutex.acquire().toCompletableFuture().join();
+    CompletableFuture<Permit> timedOut = mutex.acquire().toCompletableFuture().orTimeout(10, TimeUnit.MILLISECONDS);
+
+    assertThrows(Exception.class, timedOut::join);
+    owner.release();
+
+    assertThat(mutex.isLocked(), is(false));
+    assertThat(mutex.tryAcquire().isPresent(), is(true));
+  }
+
+  @Test
+  public void permitCanBeReleasedOnlyOnce() {
+    AsyncMutex mutex = new AsyncMutex(executor);
+    Permit permit = mutex.tryAcquire().get();
+
+    assertThat(mutex.tryAcquire().isPresent(), is(false));
+    permit.release();
+    assertThrows(IllegalStateException.class, permit::release);
+  }
+
+  @Test
+  public void criticalSectionsDoNotOverlap() {
+    AsyncMutex mutex = new AsyncMutex(executor);
+    AtomicInteger inside = new AtomicInteger();
+    int[] counter = new int[1];
+    List<CompletableFuture<Void>> tasks = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      tasks.add(CompletableFuture.supplyAsync(mutex::acquire, executor)
+          .thenCompose(stage -> stage)
+          .thenAccept(permit -> {
+            try (permit) {
+              if (inside.incrementAndGet() != 1) {
+                throw new IllegalStateException("Two owners at once");
+              }
+              counter[0]++;
+              inside.decrementAndGet();
+            }
+          }));
+    }
+    CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+
+    assertThat(counter[0], is(10_000));
+    assertThat(mutex.isLocked(), is(false));
+  }
+}
@@ -0,0 +1,107 @@
+package locks.async;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+class AsyncReadWriteLockTest {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  @AfterEach
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void readIsNotExclusive() {
+    AsyncReadWriteLock lock = new AsyncReadWriteLock(executor);
+
+    Permit first = lock.acquireRead().toCompletableFuture().join();
+    Permit second = lock.acquireRead().toCompletableFuture().orTimeout(1, TimeUnit.SECONDS).join();
+
+    first.release();
+    second.release();
+  }
+
+  @Test
+  public void writeWaitsForReaders() throws Exception {
+    AsyncReadWriteLock lock = new AsyncReadWriteLock(executor);
+    Permit reader = lock.acquireRead().toCompletableFuture().join();
+
+    CompletableFuture<Permit> writer = lock.acquireWrite().toCompletableFuture();
+    Thread.sleep(100);
+    assertThat(writer.isDone(), is(false));
+
+    reader.release();
+    writer.get(1, TimeUnit.SECONDS).release();
+  }
+
+  @Test
+  public void readerQueuedBehindWriterWaitsForIt() throws Exception {
+    AsyncReadWriteLock lock = new AsyncReadWriteLock(executor);
+    Permit firstReader = lock.acquireRead().toCompletableFuture().join();
+    CompletableFuture<Permit> writer = lock.acquireWrite().toCompletableFuture();
+    CompletableFuture<Permit> secondReader = lock.acquireRead().toCompletableFuture();
+
+    Thread.sleep(100);
+    assertThat(writer.isDone(), is(false));
+    assertThat(secondReader.isDone(), is(false));
+
+    firstReader.release();
+    writer.get(1, TimeUnit.SECONDS);
+    assertThat(secondReader.isDone(), is(false));
+
+    writer.join().release();
+    secondReader.get(1, TimeUnit.SECONDS).release();
+  }
+
+  @Test
+  public void cancelledWriterDoesNotBlockReaders() throws Exception {
+    AsyncReadWriteLock lock = new AsyncReadWriteLock(executor);
+    Permit firstReader = lock.acquireRead().toCompletableFuture().join();
+    CompletableFuture<Permit> writer = lock.acquireWrite().toCompletableFuture();
+    CompletableFuture<Permit> secondReader = lock.acquireRead().toCompletableFuture();
+
+    writer.cancel(false);
+
+    secondReader.get(1, TimeUnit.SECONDS).release();
+    firstReader.release();
+  }
+
+  @Test
+  public void writersExcludeEachOtherAndReaders() {
+    AsyncReadWriteLock lock = new AsyncReadWriteLock(executor);
+    AtomicInteger readers = new AtomicInteger();
+    AtomicInteger writers = new AtomicInteger();
+    AtomicInteger violations = new AtomicInteger();
+    List<CompletableFuture<Void>> tasks = new ArrayList<>();
+    for (int i = 0; i < 5_000; i++) {
+      boolean write = i % 5 == 0;
+      CompletableFuture<Permit> permit = (write ? lock.acquireWrite() : lock.acquireRead()).toCompletableFuture();
+      tasks.add(permit.thenAccept(p -> {
+        try (p) {
+          AtomicInteger mine = write ? writers : readers;
+          mine.incrementAndGet();
+          if (writers.get() > 1 || (writers.get() == 1 && readers.get() > 0)) {
+            violations.incrementAndGet();
+          }
+          mine.decrementAndGet();
+        }
+      }));
+    }
+    CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+
+    assertThat(violations.get(), is(0));
+  }
+}
@@ -0,0 +1,112 @@
+package phases;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Phaser;
+import java.util.function.IntFunction;
+
+import phases.PhaseSync.Phases;
+
+/**
+ * Episode latency of {@link DisseminationBarrier} compared to {@link CyclicBarrier}, {@link Phaser} and
+ * {@link PhaseSync} from 2 to 512 threads.
+ * <p>
+ * {@link PhaseSync} isn't a barrier: it runs the phases one by one. An episode for it is every party running its arrival
+ * phase and then its departure phase, so nobody departs before everybody arrives. With ten phases it fits at most five
+ * parties. It's not a unit test, so it's not run by the build.
+ */
+public class BarrierBenchmark {
+
+  private static final int MAX_PHASE_SYNC_PARTIES = Phases.values().length / 2;
+
+  public static void main(String[] args) throws Exception {
+    int episodes = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    System.out.printf("%8s %16s %16s %16s %16s%n", "threads", "dissemination", "CyclicBarrier", "Phaser", "PhaseSync");
+    for (int threads = 2; threads <= 512; threads *= 2) {
+      // fewer episodes for big thread counts to keep the run short
+      int runEpisodes = Math.max(100, episodes * 8 / Math.max(8, threads));
+      System.out.printf("%8d %13.2f us %13.2f us %13.2f us %16s%n",
+          threads,
+          episodeMicros(threads, runEpisodes, dissemination(threads)),
+          episodeMicros(threads, runEpisodes, cyclicBarrier(threads)),
+          episodeMicros(threads, runEpisodes, phaser(threads)),
+          threads <= MAX_PHASE_SYNC_PARTIES
+              ? String.format("%13.2f us", episodeMicros(threads, runEpisodes, phaseSync(threads, runEpisodes)))
+              : "n/a");
+    }
+  }
+
+  private static double episodeMicros(int threads, int episodes, IntFunction<Runnable> partyFactory)
+      throws InterruptedException {
+    CountDownLatch ready = new CountDownLatch(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> parties = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      Runnable episode = partyFactory.apply(i);
+      Thread thread = new Thread(() -> {
+        ready.countDown();
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        for (int j = 0; j < episodes; j++) {
+          episode.run();
+        }
+      });
+      parties.add(thread);
+      thread.start();
+    }
+    ready.await();
+    long begin = System.nanoTime();
+    start.countDown();
+    for (Thread thread : parties) {
+      thread.join();
+    }
+    return (System.nanoTime() - begin) / 1e3 / episodes;
+  }
+
+  private static IntFunction<Runnable> dissemination(int threads) {
+    DisseminationBarrier barrier = new DisseminationBarrier(threads);
+    return id -> {
+      DisseminationBarrier.Participant participant = barrier.register();
+      return participant::arriveAndAwaitAdvance;
+    };
+  }
+
+  private static IntFunction<Runnable> cyclicBarrier(int threads) {
+    CyclicBarrier barrier = new CyclicBarrier(threads);
+    return id -> () -> {
+      try {
+        barrier.await();
+      } catch (InterruptedException | BrokenBarrierException e) {
+        throw new IllegalStateException(e);
+      }
+    };
+  }
+
+  private static IntFunction<Runnable> phaser(int threads) {
+    Phaser phaser = new Phaser(threads);
+    return id -> phaser::arriveAndAwaitAdvance;
+  }
+
+  private static IntFunction<Runnable> phaseSync(int threads, int episodes) {
+    PhaseSync[] syncs = new PhaseSync[episodes];
+    for (int i = 0; i < episodes; i++) {
+      syncs[i] = new PhaseSync();
+    }
+    return id -> new Runnable() {
+      private int episode = 0;
+
+      @Override
+      public void run() {
+        PhaseSync sync = syncs[episode++];
+        sync.phase(Phases.values()[id], () -> {});
+        sync.phase(Phases.values()[threads + id], () -> {});
+      }
+    };
+  }
+}
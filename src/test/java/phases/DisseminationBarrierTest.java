@@ -0,0 +1,83 @@
+package phases;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static util.CpuIntensiveAlgorithm.run100Ms;
+
+class DisseminationBarrierTest {
+
+  @Test
+  public void nobodyPassesUntilEverybodyArrives() throws InterruptedException {
+    DisseminationBarrier barrier = new DisseminationBarrier(2);
+    DisseminationBarrier.Participant main = barrier.register();
+    AtomicBoolean passed = new AtomicBoolean(false);
+    Thread child = new Thread(() -> {
+      barrier.register().arriveAndAwaitAdvance();
+      passed.set(true);
+    });
+
+    child.start();
+    run100Ms();
+    assertThat(passed.get(), is(false));
+
+    assertThat(main.arriveAndAwaitAdvance(), is(1));
+    child.join(1000);
+    assertThat(passed.get(), is(true));
+  }
+
+  @Test
+  public void everyEpisodeWaitsForAllArrivals() throws InterruptedException {
+    // not a power of two to check the wrap around of partners
+    int parties = 7;
+    int episodes = 1000;
+    DisseminationBarrier barrier = new DisseminationBarrier(parties);
+    AtomicIntegerArray arrivals = new AtomicIntegerArray(episodes);
+    AtomicBoolean earlyDeparture = new AtomicBoolean(false);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < parties; i++) {
+      Thread thread = new Thread(() -> {
+        DisseminationBarrier.Participant participant = barrier.register();
+        for (int episode = 0; episode < episodes; episode++) {
+          arrivals.incrementAndGet(episode);
+          participant.arriveAndAwaitAdvance();
+          if (arrivals.get(episode) != parties) {
+            earlyDeparture.set(true);
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(earlyDeparture.get(), is(false));
+  }
+
+  @Test
+  public void phaseAdvancesWithEveryEpisode() {
+    DisseminationBarrier.Participant single = new DisseminationBarrier(1).register();
+
+    assertThat(single.getPhase(), is(0));
+    assertThat(single.arriveAndAwaitAdvance(), is(1));
+    assertThat(single.arriveAndAwaitAdvance(), is(2));
+    assertThat(single.getPhase(), is(2));
+  }
+
+  @Test
+  public void onlyDeclaredPartiesCanRegister() {
+    DisseminationBarrier barrier = new DisseminationBarrier(1);
+    barrier.register();
+
+    assertThrows(IllegalStateException.class, barrier::register);
+  }
+}
@@ -0,0 +1,111 @@
+package phases;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import phases.InterleavingExplorer.Result;
+import phases.InterleavingExplorer.Schedule;
+import phases.InterleavingExplorer.Step;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.core.Is.is;
+
+class InterleavingExplorerTest {
+
+  private static class Counter {
+    private int count = 0;
+    // what the actors have read from count
+    private final int[] local = new int[2];
+
+    @Override
+    public String toString() {
+      return "count=" + count;
+    }
+  }
+
+  @Test
+  public void lostUpdateIsFound() {
+    // count++ split into read and write as in locks.LostUpdateIntCounterTest
+    InterleavingExplorer<Counter> explorer = new InterleavingExplorer<>(Counter::new)
+        .actor("A",
+            Step.read("count", c -> c.local[0] = c.count),
+            Step.write("count", c -> c.count = c.local[0] + 1))
+        .actor("B",
+            Step.read("count", c -> c.local[1] = c.count),
+            Step.write("count", c -> c.count = c.local[1] + 1));
+
+    Result result = explorer.explore(c -> c.count == 2);
+
+    assertThat(result.violation().isPresent(), is(true));
+    assertThat(result.violation().get().toString(), is("A#1 B#1 A#2 B#2"));
+    assertThat(result.failure(), containsString("count=1"));
+  }
+
+  @Test
+  public void atomicIncrementKeepsTheInvariant() {
+    InterleavingExplorer<Counter> explorer = new InterleavingExplorer<>(Counter::new)
+        .actor("A", Step.write("count", c -> c.count++))
+        .actor("B", Step.write("count", c -> c.count++))
+        .actor("C", Step.write("count", c -> c.count++));
+
+    Result result = explorer.explore(c -> c.count == 3);
+
+    assertThat(result.violation().isPresent(), is(false));
+    assertThat(result.schedules(), is(6));
+  }
+
+  @Test
+  public void independentStepsAreNotReordered() {
+    InterleavingExplorer<int[]> explorer = new InterleavingExplorer<>(() -> new int[2])
+        .actor("A", Step.write("x", s -> s[0]++), Step.read("x", s -> {}))
+        .actor("B", Step.write("y", s -> s[1]++), Step.read("y", s -> {}));
+
+    List<Schedule> schedules = explorer.schedules();
+
+    assertThat(schedules.size(), is(1));
+    assertThat(schedules.get(0).toString(), is("A#1 A#2 B#1 B#2"));
+  }
+
+  @Test
+  public void readsCommuteWithReads() {
+    InterleavingExplorer<int[]> explorer = new InterleavingExplorer<>(() -> new int[1])
+        .actor("A", Step.read("x", s -> {}), Step.write("x", s -> s[0]++))
+        .actor("B", Step.read("x", s -> {}));
+
+    // B#1 either goes before A#2 or after it, its order with A#1 doesn't matter
+    assertThat(explorer.schedules().size(), is(2));
+  }
+
+  @Test
+  public void schedulesAreTranslatedToPhases() {
+    InterleavingExplorer<int[]> explorer = new InterleavingExplorer<>(() -> new int[1])
+        .actor("A", Step.of(s -> {}), Step.of(s -> {}))
+        .actor("B", Step.of(s -> {}));
+
+    List<Schedule> schedules = explorer.schedules();
+
+    assertThat(schedules.size(), is(3));
+    Schedule last = schedules.get(2);
+    assertThat(last.toString(), is("B#1 A#1 A#2"));
+    assertThat(last.phaseOf("B", 0), is(0));
+    assertThat(last.phaseOf("A", 0), is(1));
+    assertThat(last.phaseOf("A", 1), is(2));
+  }
+
+  @Test
+  public void exceptionBreaksTheInvariant() {
+    InterleavingExplorer<int[]> explorer = new InterleavingExplorer<>(() -> new int[1])
+        .actor("A", Step.write("x", s -> {
+          if (s[0] == 1) {
+            throw new IllegalStateException("A runs after B");
+          }
+        }))
+        .actor("B", Step.write("x", s -> s[0] = 1));
+
+    Result result = explorer.explore(s -> true);
+
+    assertThat(result.violation().get().toString(), is("B#1 A#1"));
+    assertThat(result.failure(), containsString("A runs after B"));
+  }
+}
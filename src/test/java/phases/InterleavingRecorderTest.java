@@ -0,0 +1,167 @@
+package phases;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+import phases.InterleavingRecorder.Actor;
+import phases.InterleavingRecorder.Replay;
+import phases.InterleavingRecorder.Schedule;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+
+class InterleavingRecorderTest {
+
+  private static final int ACTORS = 2;
+
+  private static class Counter {
+    private int count = 0;
+  }
+
+  // count++ split into read and write as in locks.LostUpdateIntCounterTest
+  private static void increment(Actor actor, Counter counter) throws Exception {
+    int[] read = new int[1];
+    actor.step("count", () -> read[0] = counter.count);
+    // makes the race more likely even on one core
+    Thread.yield();
+    actor.step("count", () -> counter.count = read[0] + 1);
+  }
+
+  @Test
+  public void stepsAreOrderedBySequence() throws Exception {
+    InterleavingRecorder recorder = new InterleavingRecorder(16);
+    Actor a = recorder.actor("A");
+    Actor b = recorder.actor("B");
+
+    a.step("x", () -> {});
+    b.step("y", () -> {});
+    a.step("y", () -> {});
+
+    Schedule schedule = recorder.schedule();
+    assertThat(schedule.toString(), is("A#1(x) B#1(y) A#2(y)"));
+    assertThat(schedule.phaseOf("A", 1), is(2));
+    assertThat(schedule.phaseOf("B", 0), is(1));
+    assertThat(schedule.phaseOf("B", 1), is(-1));
+    assertThat(schedule.isComplete(), is(true));
+    assertThat(recorder.actor("A"), is(a));
+  }
+
+  @Test
+  public void onlyTheLatestStepsAreKept() throws Exception {
+    InterleavingRecorder recorder = new InterleavingRecorder(2);
+    Actor a = recorder.actor("A");
+    Actor b = recorder.actor("B");
+
+    b.step("x", () -> {});
+    a.step("x", () -> {});
+    a.step("x", () -> {});
+    a.step("x", () -> {});
+
+    Schedule schedule = recorder.schedule();
+    // B#1 happened before the oldest step A still has
+    assertThat(schedule.toString(), is("A#2(x) A#3(x)"));
+    assertThat(schedule.isComplete(), is(false));
+
+    recorder.reset();
+    a.step("x", () -> {});
+    assertThat(recorder.schedule().toString(), is("A#1(x)"));
+  }
+
+  @Test
+  public void accessesToAVariableAreRecordedInTheOrderTheyHappen() throws Exception {
+    InterleavingRecorder recorder = new InterleavingRecorder(4096);
+    List<String> happened = new ArrayList<>();
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      String name = "actor-" + i;
+      Actor actor = recorder.actor(name);
+      Thread thread = new Thread(() -> {
+        try {
+          start.await();
+          for (int step = 0; step < 1000; step++) {
+            actor.step("log", () -> happened.add(name));
+          }
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(recorder.schedule().actorsInOrder(), is(happened));
+  }
+
+  @Test
+  public void lostUpdateIsRecordedAndReplayed() throws Exception {
+    InterleavingRecorder recorder = new InterleavingRecorder(16);
+    Schedule failed = null;
+    for (int run = 0; run < 10_000 && failed == null; run++) {
+      recorder.reset();
+      Counter counter = new Counter();
+      runActors(recorder::actor, counter);
+      if (counter.count != ACTORS) {
+        failed = recorder.schedule();
+      }
+    }
+    assertThat("The lost update hasn't happened", failed != null, is(true));
+
+    // the reads and the writes of the count are replayed in the recorded order, so every replay loses the update
+    for (int replay = 0; replay < 10; replay++) {
+      Replay replayed = failed.replay();
+      Counter counter = new Counter();
+      runActors(replayed::actor, counter);
+      assertThat(replayed.exceptionDetails(), replayed.noExceptions(), is(true));
+      assertThat(failed.toString(), counter.count, lessThan(ACTORS));
+    }
+  }
+
+  @Test
+  public void divergingReplayTimesOut() throws Exception {
+    InterleavingRecorder recorder = new InterleavingRecorder(16);
+    recorder.actor("A").step("x", () -> {});
+    recorder.actor("B").step("x", () -> {});
+    Replay replay = recorder.schedule().replay();
+
+    // B's step waits for A, which never comes
+    replay.actor("B").step("x", () -> {});
+
+    assertThat(replay.noExceptions(), is(false));
+    assertThat(replay.exceptionDetails(), containsString("Timeout"));
+  }
+
+  private interface Actors {
+    Actor actor(String name);
+  }
+
+  private static void runActors(Actors actors, Counter counter) throws InterruptedException {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < ACTORS; i++) {
+      Actor actor = actors.actor("actor-" + i);
+      Thread thread = new Thread(() -> {
+        try {
+          start.await();
+          increment(actor, counter);
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+  }
+}
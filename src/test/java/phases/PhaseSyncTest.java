@@ -129,4 +129,44 @@ class PhaseSyncTest {
     assertThat(phaseSync.noExceptions(), is(false));
   }
 
+  @Test
+  public void phasesCanBeNumberedBeyondTheEnum() {
+    PhaseSync phaseSync = new PhaseSync();
+
+    final AtomicReference<String> stages = new AtomicReference<>("");
+    BinaryOperator<String> append = (a, b) -> a + b;
+    runAsync(() -> {
+      for (int phase = 1; phase < 20; phase += 2) {
+        String stage = String.valueOf(phase);
+        phaseSync.phase(phase, () -> stages.getAndAccumulate(stage + ",", append));
+      }
+    });
+    for (int phase = 0; phase < 20; phase += 2) {
+      String stage = String.valueOf(phase);
+      phaseSync.phase(phase, () -> stages.getAndAccumulate(stage + ",", append));
+    }
+    phaseSync.phase(20, () -> {});
+
+    assertEquals("0,1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16,17,18,19,", stages.get());
+    assertThat(phaseSync.noExceptions(), is(true));
+  }
+
+  @Test
+  public void numberedPhasesMatchTheEnum() {
+    PhaseSync phaseSync = new PhaseSync();
+
+    phaseSync.phase(0, () -> {});
+    phaseSync.phase(Phases.SECOND, () -> {});
+    phaseSync.phase(2, () -> {throw new IllegalStateException("test exception");});
+
+    assertThat(phaseSync.exceptionDetails(),
+        containsString("Unexpected exception java.lang.IllegalStateException in THIRD"));
+  }
+
+  @Test
+  public void lastPhaseHasNoNext() {
+    assertThat(Phases.NINTH.hasNext(), is(true));
+    assertThat(Phases.TENTH.hasNext(), is(false));
+  }
+
 }
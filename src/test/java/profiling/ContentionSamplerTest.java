@@ -0,0 +1,114 @@
+package profiling;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.jupiter.api.Test;
+import profiling.ContentionSampler.Contention;
+import profiling.ContentionSampler.Report;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.startsWith;
+import static org.hamcrest.core.Is.is;
+
+class ContentionSamplerTest {
+
+  @Test
+  public void blockedOnMonitor() throws InterruptedException {
+    final Object lock = new Object();
+    ContentionSampler sampler = new ContentionSampler(Duration.ofMillis(10));
+    Thread waiter = new Thread(() -> {
+      synchronized (lock) {
+        //do something here
+      }
+    }, "monitor-waiter");
+    synchronized (lock) {
+      waiter.start();
+      waiter.join(100);
+      sampler.sample();
+      sampler.sample();
+    }
+    waiter.join();
+
+    Report report = sampler.report();
+    assertThat(report.samples(), is(2L));
+    String lockName = report.blockedTimeByLock().keySet().iterator().next();
+    assertThat(lockName, startsWith("java.lang.Object@"));
+    // every sample stands for at least the 10 ms interval, more if the sampling is slow
+    Duration blocked = report.blockedTimeByLock().get(lockName);
+    assertThat(blocked.compareTo(Duration.ofMillis(20)) >= 0, is(true));
+    Contention pair = report.blockedTimeByOwnerAndWaiter().keySet().iterator().next();
+    assertThat(pair.owner(), is(Thread.currentThread().getName()));
+    assertThat(pair.waiter(), is("monitor-waiter"));
+    assertThat(report.blockedTimeByOwnerAndWaiter().get(pair), is(blocked));
+    assertThat(report.foldedStacks(), startsWith("monitor-waiter;java.lang.Thread.run;"));
+    assertThat(report.foldedStacks(), containsString(";[BLOCKED " + lockName + "] " + blocked.toNanos() / 1000));
+  }
+
+  @Test
+  public void waitingForOwnedLock() throws InterruptedException {
+    ReentrantLock lock = new ReentrantLock();
+    ContentionSampler sampler = new ContentionSampler(Duration.ofMillis(10));
+    Thread waiter = new Thread(() -> {
+      lock.lock();
+      lock.unlock();
+    }, "lock-waiter");
+    lock.lock();
+    try {
+      waiter.start();
+      waiter.join(100);
+      sampler.sample();
+    } finally {
+      lock.unlock();
+    }
+    waiter.join();
+
+    Report report = sampler.report();
+    String lockName = report.blockedTimeByLock().keySet().iterator().next();
+    assertThat(lockName, startsWith("java.util.concurrent.locks.ReentrantLock$NonfairSync@"));
+    Contention pair = report.blockedTimeByOwnerAndWaiter().keySet().iterator().next();
+    assertThat(pair.owner(), is(Thread.currentThread().getName()));
+    assertThat(pair.waiter(), is("lock-waiter"));
+  }
+
+  @Test
+  public void conditionWaitersAreNotContention() throws InterruptedException {
+    ReentrantLock lock = new ReentrantLock();
+    Condition condition = lock.newCondition();
+    ContentionSampler sampler = new ContentionSampler(Duration.ofMillis(10));
+    Thread waiter = new Thread(() -> {
+      lock.lock();
+      try {
+        condition.await(1, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        //the test is over
+      } finally {
+        lock.unlock();
+      }
+    });
+    waiter.start();
+    waiter.join(100);
+
+    sampler.sample();
+    waiter.interrupt();
+    waiter.join();
+
+    assertThat(sampler.report().blockedTimeByLock().isEmpty(), is(true));
+  }
+
+  @Test
+  public void backsOffWhenOverBudget() throws InterruptedException {
+    ContentionSampler sampler = new ContentionSampler(Duration.ofMillis(1), 0.000_001).start();
+    try {
+      Thread.sleep(50);
+      assertThat(sampler.currentInterval(), is(Duration.ofMillis(100)));
+    } finally {
+      sampler.close();
+    }
+    assertThat(sampler.report().samples(), greaterThan(0L));
+  }
+}
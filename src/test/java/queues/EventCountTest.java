@@ -0,0 +1,99 @@
+package queues;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import static java.lang.Thread.State.TERMINATED;
+import static java.lang.Thread.State.WAITING;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static util.CpuIntensiveAlgorithm.run100Ms;
+
+class EventCountTest {
+
+  @Test
+  public void signalAfterTheTicketIsNotLost() throws InterruptedException {
+    EventCount eventCount = new EventCount();
+
+    // the waiter has taken the ticket but hasn't started waiting yet,
+    // the moment when Condition.signalAll() is lost
+    long ticket = eventCount.prepareWait();
+    eventCount.signalAll();
+
+    // so it doesn't wait at all
+    eventCount.await(ticket);
+    assertThat(eventCount.waiters(), is(0));
+  }
+
+  @Test
+  public void waiterIsWokenUpBySignal() {
+    EventCount eventCount = new EventCount();
+    AtomicBoolean flag = new AtomicBoolean(false);
+    AtomicBoolean threadIsAwaken = new AtomicBoolean(false);
+    Thread thread = new Thread(() -> {
+      try {
+        eventCount.awaitUntil(flag::get);
+        threadIsAwaken.set(true);
+      } catch (InterruptedException e) {
+        //ignore in this test
+      }
+    });
+    thread.start();
+    run100Ms();
+
+    assertThat(thread.getState(), is(WAITING));
+    assertThat(eventCount.waiters(), is(1));
+
+    flag.set(true);
+    eventCount.signalAll();
+    run100Ms();
+
+    assertThat(threadIsAwaken.get(), is(true));
+    assertThat(thread.getState(), is(TERMINATED));
+  }
+
+  @Test
+  public void conditionThatAlreadyHoldsDoesNotWait() throws InterruptedException {
+    EventCount eventCount = new EventCount();
+
+    eventCount.awaitUntil(() -> true);
+
+    assertThat(eventCount.waiters(), is(0));
+  }
+
+  @Test
+  public void signalsAreNeverMissed() throws InterruptedException {
+    EventCount eventCount = new EventCount();
+    int rounds = 10_000;
+    int[] published = new int[1];
+    AtomicBoolean done = new AtomicBoolean(false);
+    Thread consumer = new Thread(() -> {
+      try {
+        for (int expected = 1; expected <= rounds; expected++) {
+          int round = expected;
+          eventCount.awaitUntil(() -> volatileRead(published) >= round);
+        }
+        done.set(true);
+      } catch (InterruptedException e) {
+        //ignore in this test
+      }
+    });
+    consumer.start();
+    for (int i = 1; i <= rounds; i++) {
+      synchronized (published) {
+        published[0] = i;
+      }
+      eventCount.signalAll();
+    }
+    consumer.join(10_000);
+
+    assertThat(done.get(), is(true));
+  }
+
+  private static int volatileRead(int[] published) {
+    synchronized (published) {
+      return published[0];
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package queues;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jetbrains.kotlinx.lincheck.LinChecker;
+import org.jetbrains.kotlinx.lincheck.annotations.Operation;
+import org.jetbrains.kotlinx.lincheck.annotations.Param;
+import org.jetbrains.kotlinx.lincheck.paramgen.IntGen;
+import org.jetbrains.kotlinx.lincheck.strategy.stress.StressCTest;
+import org.junit.jupiter.api.Test;
+
+@StressCTest
+@Param(name = "element", gen = IntGen.class, conf = "1:9")
+public class MpmcRingBufferLincheckTest {
+
+  // a small buffer to make it full often
+  private final MpmcRingBuffer<Integer> buffer = new MpmcRingBuffer<>(2);
+
+  @Operation
+  public boolean offer(@Param(name = "element") int element) {
+    return buffer.offer(element);
+  }
+
+  @Operation
+  public Integer poll() {
+    return buffer.poll();
+  }
+
+  @Operation
+  public List<Integer> drain() {
+    List<Integer> drained = new ArrayList<>();
+    buffer.drain(drained::add, 2);
+    return drained;
+  }
+
+  @Test
+  public void test() {
+    LinChecker.check(MpmcRingBufferLincheckTest.class);
+  }
+}
@@ -0,0 +1,151 @@
+package queues;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MpmcRingBufferTest {
+
+  @Test
+  public void elementsAreTakenInFifoOrder() {
+    MpmcRingBuffer<Integer> buffer = new MpmcRingBuffer<>(4);
+
+    assertThat(buffer.offer(1), is(true));
+    assertThat(buffer.offer(2), is(true));
+    assertThat(buffer.poll(), is(1));
+    assertThat(buffer.poll(), is(2));
+    assertThat(buffer.poll() == null, is(true));
+  }
+
+  @Test
+  public void offerFailsWhenFull() {
+    MpmcRingBuffer<Integer> buffer = new MpmcRingBuffer<>(2);
+
+    assertThat(buffer.offer(1), is(true));
+    assertThat(buffer.offer(2), is(true));
+    assertThat(buffer.offer(3), is(false));
+    assertThat(buffer.size(), is(2));
+    buffer.poll();
+    assertThat(buffer.offer(3), is(true));
+  }
+
+  @Test
+  public void drainTakesABatch() {
+    MpmcRingBuffer<Integer> buffer = new MpmcRingBuffer<>(8);
+    IntStream.range(0, 6).forEach(buffer::offer);
+    List<Integer> drained = new ArrayList<>();
+
+    assertThat(buffer.drain(drained::add, 4), is(4));
+    assertThat(drained, is(List.of(0, 1, 2, 3)));
+    assertThat(buffer.drain(drained::add, 4), is(2));
+    assertThat(buffer.drain(drained::add, 4), is(0));
+  }
+
+  @Test
+  public void throwingConsumerDoesNotWedgeTheQueue() {
+    MpmcRingBuffer<Integer> buffer = new MpmcRingBuffer<>(4);
+    IntStream.range(0, 4).forEach(buffer::offer);
+
+    assertThrows(IllegalStateException.class, () -> buffer.drain(element -> {
+      throw new IllegalStateException("consumer failed");
+    }, 4));
+
+    // all the taken slots are free for the next lap
+    IntStream.range(4, 8).forEach(element -> assertThat(buffer.offer(element), is(true)));
+    assertThat(buffer.poll(), is(4));
+  }
+
+  @Test
+  public void capacityShouldBeAPowerOfTwo() {
+    assertThrows(IllegalArgumentException.class, () -> new MpmcRingBuffer<>(3));
+  }
+
+  @Test
+  public void takeWaitsForProducer() throws InterruptedException {
+    MpmcRingBuffer<Integer> buffer = new MpmcRingBuffer<>(2, WaitStrategy.parking(1, TimeUnit.MILLISECONDS));
+    Thread producer = new Thread(() -> {
+      try {
+        Thread.sleep(100);
+        buffer.put(42);
+      } catch (InterruptedException e) {
+        // ignore in this test
+      }
+    });
+    producer.start();
+
+    assertThat(buffer.take(), is(42));
+  }
+
+  @Test
+  public void blockedConsumerIsWokenUpByProducer() throws InterruptedException {
+    MpmcRingBuffer<Integer> buffer = new MpmcRingBuffer<>(2, WaitStrategy.blocking());
+    Integer[] taken = new Integer[1];
+    Thread consumer = new Thread(() -> {
+      try {
+        taken[0] = buffer.take();
+      } catch (InterruptedException e) {
+        // ignore in this test
+      }
+    });
+    consumer.start();
+    consumer.join(100);
+    assertThat(consumer.getState(), is(Thread.State.WAITING));
+
+    buffer.offer(42);
+    consumer.join(1000);
+
+    assertThat(taken[0], is(42));
+  }
+
+  @Test
+  public void everyElementIsConsumedOnce() throws InterruptedException {
+    MpmcRingBuffer<Integer> buffer = new MpmcRingBuffer<>(64, WaitStrategy.yielding());
+    int producers = 4;
+    int perProducer = 20_000;
+    ConcurrentLinkedQueue<Integer> consumed = new ConcurrentLinkedQueue<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      int first = p * perProducer;
+      threads.add(new Thread(() -> {
+        try {
+          for (int i = first; i < first + perProducer; i++) {
+            buffer.put(i);
+          }
+        } catch (InterruptedException e) {
+          // ignore in this test
+        }
+      }));
+    }
+    for (int c = 0; c < 4; c++) {
+      boolean batches = c % 2 == 0;
+      threads.add(new Thread(() -> {
+        while (consumed.size() < producers * perProducer) {
+          if (batches) {
+            buffer.drain(consumed::add, 16);
+          } else {
+            Integer element = buffer.poll();
+            if (element != null) {
+              consumed.add(element);
+            }
+          }
+        }
+      }));
+    }
+    threads.forEach(Thread::start);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    List<Integer> sorted = consumed.stream().sorted().collect(Collectors.toList());
+    assertThat(sorted, is(IntStream.range(0, producers * perProducer).boxed().collect(Collectors.toList())));
+  }
+}
@@ -0,0 +1,167 @@
+package queues;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Throughput and latency of {@link MpmcRingBuffer} with every {@link WaitStrategy} compared to a queue guarded by a
+ * {@link ReentrantLock} with two conditions (the handoff of {@code TestReentrantLock.testConditionAwait}) and to
+ * {@link ArrayBlockingQueue}. Elements are the nano time of their production, so consumers measure the latency.
+ * <p>
+ * Usage: {@code RingBufferBenchmark [elements per producer]}. It's not a unit test, so it's not run by the build.
+ */
+public class RingBufferBenchmark {
+
+  private static final int CAPACITY = 1024;
+  private static final int BATCH = 64;
+
+  interface Queue {
+    void put(Long element) throws InterruptedException;
+
+    /**
+     * Takes at least one element and returns the number of taken elements.
+     */
+    int take(long[] latencies, int offset) throws InterruptedException;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int elements = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    System.out.printf("%-22s %6s %14s %10s %10s%n", "queue", "p x c", "elements/s", "p50 us", "p99 us");
+    for (int threads : new int[] {1, 2, 4}) {
+      run("ring buffer (spin)", threads, elements, ringBuffer(WaitStrategy.spinning()));
+      run("ring buffer (yield)", threads, elements, ringBuffer(WaitStrategy.yielding()));
+      run("ring buffer (park)", threads, elements, ringBuffer(WaitStrategy.parking(100, TimeUnit.MICROSECONDS)));
+      run("ring buffer (block)", threads, elements, ringBuffer(WaitStrategy.blocking()));
+      run("two conditions", threads, elements, new TwoConditionQueue());
+      run("ArrayBlockingQueue", threads, elements, arrayBlockingQueue());
+    }
+  }
+
+  private static void run(String name, int threads, int elementsPerProducer, Queue queue) throws InterruptedException {
+    int total = threads * elementsPerProducer;
+    long[][] latencies = new long[threads][];
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> all = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      all.add(new Thread(() -> {
+        try {
+          start.await();
+          for (int j = 0; j < elementsPerProducer; j++) {
+            queue.put(System.nanoTime());
+          }
+        } catch (InterruptedException e) {
+          // stop producing
+        }
+      }));
+      int consumer = i;
+      all.add(new Thread(() -> {
+        long[] mine = new long[elementsPerProducer + BATCH];
+        int taken = 0;
+        try {
+          start.await();
+          while (taken < elementsPerProducer) {
+            taken += queue.take(mine, taken);
+          }
+        } catch (InterruptedException e) {
+          // stop consuming
+        }
+        latencies[consumer] = Arrays.copyOf(mine, taken);
+      }));
+    }
+    all.forEach(Thread::start);
+    long begin = System.nanoTime();
+    start.countDown();
+    for (Thread thread : all) {
+      thread.join();
+    }
+    double seconds = (System.nanoTime() - begin) / 1e9;
+    long[] sorted = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+    System.out.printf("%-22s %2d x %-2d %14.0f %10.1f %10.1f%n", name, threads, threads, total / seconds,
+        sorted[sorted.length / 2] / 1e3, sorted[(int) (sorted.length * 0.99)] / 1e3);
+  }
+
+  private static Queue ringBuffer(WaitStrategy waitStrategy) {
+    MpmcRingBuffer<Long> buffer = new MpmcRingBuffer<>(CAPACITY, waitStrategy);
+    return new Queue() {
+      @Override
+      public void put(Long element) throws InterruptedException {
+        buffer.put(element);
+      }
+
+      @Override
+      public int take(long[] latencies, int offset) throws InterruptedException {
+        int limit = Math.max(1, Math.min(BATCH, latencies.length - offset - BATCH));
+        int[] taken = {0};
+        waitStrategy.await(() -> {
+          buffer.drain(element -> latencies[offset + taken[0]++] = System.nanoTime() - element, limit);
+          return taken[0] > 0;
+        });
+        return taken[0];
+      }
+    };
+  }
+
+  private static Queue arrayBlockingQueue() {
+    ArrayBlockingQueue<Long> queue = new ArrayBlockingQueue<>(CAPACITY);
+    return new Queue() {
+      @Override
+      public void put(Long element) throws InterruptedException {
+        queue.put(element);
+      }
+
+      @Override
+      public int take(long[] latencies, int offset) throws InterruptedException {
+        latencies[offset] = System.nanoTime() - queue.take();
+        return 1;
+      }
+    };
+  }
+
+  private static class TwoConditionQueue implements Queue {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final long[] elements = new long[CAPACITY];
+    private int head;
+    private int size;
+
+    @Override
+    public void put(Long element) throws InterruptedException {
+      lock.lock();
+      try {
+        while (size == CAPACITY) {
+          notFull.await();
+        }
+        elements[(head + size++) % CAPACITY] = element;
+        notEmpty.signal();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public int take(long[] latencies, int offset) throws InterruptedException {
+      long element;
+      lock.lock();
+      try {
+        while (size == 0) {
+          notEmpty.await();
+        }
+        element = elements[head];
+        head = (head + 1) % CAPACITY;
+        size--;
+        notFull.signal();
+      } finally {
+        lock.unlock();
+      }
+      latencies[offset] = System.nanoTime() - element;
+      return 1;
+    }
+  }
+}
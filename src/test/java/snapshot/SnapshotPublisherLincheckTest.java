@@ -0,0 +1,52 @@
+package snapshot;
+
+import org.jetbrains.kotlinx.lincheck.LinChecker;
+import org.jetbrains.kotlinx.lincheck.annotations.Operation;
+import org.jetbrains.kotlinx.lincheck.strategy.stress.StressCTest;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The read-mostly state of {@code locks.DirtyReadFixTest} published as immutable versions instead of being guarded by
+ * a read-write lock.
+ */
+@StressCTest
+public class SnapshotPublisherLincheckTest {
+
+  private static class StringAndNumber {
+    private final int number;
+    private final String string;
+
+    private StringAndNumber(int number) {
+      this.number = number;
+      this.string = String.valueOf(number);
+    }
+  }
+
+  private final SnapshotPublisher<StringAndNumber> counter = new SnapshotPublisher<>(new StringAndNumber(0));
+
+  @Operation
+  public void increment() {
+    counter.update(current -> new StringAndNumber(current.number + 1));
+  }
+
+  @Operation
+  public String getString() {
+    return counter.get().string;
+  }
+
+  @Operation
+  public int getNumber() {
+    return counter.get().number;
+  }
+
+  @Operation
+  public String getBoth() {
+    StringAndNumber snapshot = counter.get();
+    return snapshot.number + "/" + snapshot.string;
+  }
+
+  @Test
+  public void test() {
+    LinChecker.check(SnapshotPublisherLincheckTest.class);
+  }
+}
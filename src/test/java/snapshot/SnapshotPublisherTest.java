@@ -0,0 +1,93 @@
+package snapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import snapshot.SnapshotPublisher.Retired;
+import snapshot.SnapshotPublisher.Snapshot;
+import snapshot.SnapshotPublisher.Writers;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static util.CpuIntensiveAlgorithm.run100Ms;
+
+class SnapshotPublisherTest {
+
+  @Test
+  public void readersSeeThePublishedVersion() {
+    SnapshotPublisher<String> publisher = new SnapshotPublisher<>("first");
+
+    Retired<String> retired = publisher.publish("second");
+
+    assertThat(publisher.get(), is("second"));
+    assertThat(retired.value(), is("first"));
+  }
+
+  @Test
+  public void mergedWritersDoNotLoseUpdates() throws InterruptedException {
+    concurrentIncrements(Writers.MERGED);
+  }
+
+  @Test
+  public void serializedWritersDoNotLoseUpdates() throws InterruptedException {
+    concurrentIncrements(Writers.SERIALIZED);
+  }
+
+  @Test
+  public void writerWaitsForReadersOfTheReplacedVersion() throws InterruptedException {
+    SnapshotPublisher<String> publisher = new SnapshotPublisher<>("first");
+    Snapshot<String> reader = publisher.acquire();
+    Retired<String> retired = publisher.publish("second");
+    AtomicBoolean reclaimed = new AtomicBoolean(false);
+    Thread writer = new Thread(() -> {
+      try {
+        retired.awaitReaders();
+        reclaimed.set(true);
+      } catch (InterruptedException e) {
+        //ignore in this test
+      }
+    });
+    writer.start();
+    run100Ms();
+
+    // the reader still uses the old version
+    assertThat(reader.get(), is("first"));
+    assertThat(reclaimed.get(), is(false));
+
+    reader.close();
+    writer.join(1000);
+    assertThat(reclaimed.get(), is(true));
+  }
+
+  @Test
+  public void readersOfTheNewVersionDoNotDelayTheOldOne() throws InterruptedException {
+    SnapshotPublisher<String> publisher = new SnapshotPublisher<>("first");
+    Retired<String> retired = publisher.publish("second");
+
+    try (Snapshot<String> reader = publisher.acquire()) {
+      assertThat(reader.get(), is("second"));
+      assertThat(retired.hasReaders(), is(false));
+      assertThat(retired.awaitReaders(), is("first"));
+    }
+  }
+
+  private static void concurrentIncrements(Writers writers) throws InterruptedException {
+    SnapshotPublisher<Integer> publisher = new SnapshotPublisher<>(0, writers);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      Thread thread = new Thread(() -> {
+        for (int j = 0; j < 1000; j++) {
+          publisher.update(count -> count + 1);
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertThat(publisher.get(), is(8000));
+  }
+}
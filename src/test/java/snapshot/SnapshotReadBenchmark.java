@@ -0,0 +1,142 @@
+package snapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Read throughput of the {@code locks.DirtyReadFixTest} state (a number and its string) with a growing number of
+ * readers and one writer updating it every millisecond: {@link SnapshotPublisher#get()}, the tracked
+ * {@link SnapshotPublisher#acquire()} and a {@link ReentrantReadWriteLock}.
+ * <p>
+ * Usage: {@code SnapshotReadBenchmark [milliseconds per run]}. It's not a unit test, so it's not run by the build.
+ */
+public class SnapshotReadBenchmark {
+
+  interface State {
+    String read();
+
+    void increment();
+  }
+
+  public static void main(String[] args) throws Exception {
+    long millis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+    System.out.printf("%-20s %8s %16s%n", "state", "readers", "reads/s");
+    for (int readers : new int[] {1, 2, 4, 8, 16}) {
+      run("snapshot get", readers, millis, new Published());
+      run("snapshot acquire", readers, millis, new Tracked());
+      run("read-write lock", readers, millis, new Locked());
+    }
+  }
+
+  private static void run(String name, int readers, long millis, State state) throws InterruptedException {
+    LongAdder reads = new LongAdder();
+    CountDownLatch start = new CountDownLatch(1);
+    long[] deadline = new long[1];
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < readers; i++) {
+      threads.add(new Thread(() -> {
+        awaitStart(start);
+        long count = 0;
+        int blackhole = 0;
+        while (System.nanoTime() < deadline[0]) {
+          for (int j = 0; j < 1024; j++) {
+            blackhole += state.read().length();
+          }
+          count += 1024;
+        }
+        reads.add(count + (blackhole == 42 ? 1 : 0));
+      }));
+    }
+    threads.add(new Thread(() -> {
+      awaitStart(start);
+      while (System.nanoTime() < deadline[0]) {
+        state.increment();
+        try {
+          TimeUnit.MILLISECONDS.sleep(1);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    }));
+    threads.forEach(Thread::start);
+    deadline[0] = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    System.out.printf("%-20s %8d %,16d%n", name, readers, reads.sum() * 1000 / millis);
+  }
+
+  private static void awaitStart(CountDownLatch start) {
+    try {
+      start.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static class StringAndNumber {
+    private final int number;
+    private final String string;
+
+    private StringAndNumber(int number) {
+      this.number = number;
+      this.string = String.valueOf(number);
+    }
+  }
+
+  private static class Published implements State {
+    final SnapshotPublisher<StringAndNumber> publisher = new SnapshotPublisher<>(new StringAndNumber(0));
+
+    @Override
+    public String read() {
+      StringAndNumber current = publisher.get();
+      return current.string + current.number;
+    }
+
+    @Override
+    public void increment() {
+      publisher.update(current -> new StringAndNumber(current.number + 1));
+    }
+  }
+
+  private static class Tracked extends Published {
+    @Override
+    public String read() {
+      try (SnapshotPublisher.Snapshot<StringAndNumber> snapshot = publisher.acquire()) {
+        return snapshot.get().string + snapshot.get().number;
+      }
+    }
+  }
+
+  private static class Locked implements State {
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private int number;
+    private String string = "0";
+
+    @Override
+    public String read() {
+      lock.readLock().lock();
+      try {
+        return string + number;
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+
+    @Override
+    public void increment() {
+      lock.writeLock().lock();
+      try {
+        number++;
+        string = String.valueOf(number);
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+}
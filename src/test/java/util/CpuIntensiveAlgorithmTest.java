@@ -1,5 +1,7 @@
 package util;
 
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
@@ -30,6 +32,21 @@ class CpuIntensiveAlgorithmTest {
     });
   }
 
+  @Test
+  public void testCalibratedFor10Ms() {
+    Runnable work = CpuIntensiveAlgorithm.calibratedFor(Duration.ofMillis(10));
+    // the median, like the calibration itself, so a preempted or a lucky run doesn't decide
+    long[] runs = new long[7];
+    for (int i = 0; i < runs.length; i++) {
+      long begin = System.nanoTime();
+      work.run();
+      runs[i] = System.nanoTime() - begin;
+    }
+    Arrays.sort(runs);
+    assertThat(runs[runs.length / 2],
+        is(both(greaterThan(TimeUnit.MILLISECONDS.toNanos(7))).and(lessThan(TimeUnit.MILLISECONDS.toNanos(15)))));
+  }
+
   @Test
   public void testRun100Ms() {
     long begin = System.currentTimeMillis();